@@ -0,0 +1,94 @@
+package top.frankyang.unityfs4j;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.openjdk.jmh.annotations.*;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataBlock;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
+import top.frankyang.unityfs4j.cache.MemoryBlockCache;
+import top.frankyang.unityfs4j.io.ByteSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadSeekBenchmark {
+    private static final int BLOCK_SIZE = 256;
+
+    @Param({"16", "1024", "16384"})
+    int blockCount;
+
+    UnityFsContext context;
+
+    UnityFsPayload payload;
+
+    long[] offsets;
+
+    int i;
+
+    @Setup
+    public void setup() throws IOException {  // LZ4 blocks, as stored ones are read from the mapping and never cached
+        var zipped = zippedBlock();
+        var blocks = new ArrayList<DataBlock>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(new DataBlock(BLOCK_SIZE, zipped.length, Compression.LZ4.ordinal()));
+        }
+        var size = (long) blockCount * BLOCK_SIZE;
+        var metadata = new UnityFsMetadata(
+            new UUID(0, 0), blocks, List.of(new DataNode(0, size, 0, "CAB-benchmark"))
+        );
+        var data = ByteBuffer.allocate(blockCount * zipped.length);
+        for (int i = 0; i < blockCount; i++) {
+            data.put(zipped);
+        }
+        context = new UnityFsContext(Files.createTempDirectory("unityfs4j"), new MemoryBlockCache(Long.MAX_VALUE));
+        payload = new UnityFsPayload(ByteSource.of(data.flip()), 0, metadata, context);
+
+        var random = new Random(42);
+        offsets = new long[4096];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextInt((int) size - 4);
+        }
+        for (int i = 0; i < blockCount; i++) {  // Warm the cache, only lookups are measured
+            payload.seek((long) i * BLOCK_SIZE);
+            payload.read();
+        }
+    }
+
+    private static byte[] zippedBlock() throws IOException {
+        var plain = new byte[BLOCK_SIZE];
+        new Random(42).nextBytes(plain);
+        var out = new ByteArrayOutputStream();
+        try (var lz4 = new BlockLZ4CompressorOutputStream(out)) {
+            lz4.write(plain);
+        }
+        return out.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int randomSeekAndRead() {
+        payload.seek(offsets[i++ & (offsets.length - 1)]);
+        return payload.read();
+    }
+
+    @Benchmark
+    public int indexOf() {  // The search alone, without the cache or a cursor
+        return payload.indexOf(offsets[i++ & (offsets.length - 1)]);
+    }
+}
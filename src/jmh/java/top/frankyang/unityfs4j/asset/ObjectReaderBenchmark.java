@@ -0,0 +1,103 @@
+package top.frankyang.unityfs4j.asset;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import top.frankyang.unityfs4j.UnityFsContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// -Djmh.args="ObjectReaderBenchmark -p bundle=<path to a bundle>"
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")  // For the engine proxies
+public class ObjectReaderBenchmark {
+    @Param("")
+    String bundle;
+
+    @Param({"Texture2D", "Mesh", "MonoBehaviour"})
+    String type;
+
+    UnityFsContext context;
+
+    List<ObjectInfo> objects = new ArrayList<>();
+
+    List<ObjectReader> recursive = new ArrayList<>();  // The reference, as objects were read before plans
+
+    List<ReadPlan> plans = new ArrayList<>();
+
+    List<ObjectReader> compiled = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        if (bundle.isEmpty()) {
+            throw new IllegalArgumentException("no bundle given, pass one with -p bundle=<path>");
+        }
+        var path = Path.of(bundle).toAbsolutePath();
+        context = new UnityFsContext(path.getParent());
+        var readers = new IdentityHashMap<UnityType, ObjectReader>();
+        for (var asset : context.getStream(path.getFileName())) {
+            if (asset.isResource()) continue;
+            for (var object : asset) {
+                if (!type.equals(object.getType().getType())) continue;
+                objects.add(object);
+                recursive.add(new RecursiveReader(object.getType()));
+                plans.add(ReadPlan.of(object.getType()));
+                compiled.add(readers.computeIfAbsent(object.getType(), this::compile));  // Once per tree
+            }
+        }
+        if (objects.isEmpty()) {
+            throw new IllegalStateException("no " + type + " in " + bundle);
+        }
+    }
+
+    private ObjectReader compile(UnityType type) {
+        var reader = ObjectReaders.compile(type);
+        if (reader instanceof ReadPlan) {  // Fallen back, which would only measure the plan twice
+            throw new IllegalStateException("could not compile " + type);
+        }
+        return reader;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void recursive(Blackhole blackhole) {
+        for (int i = 0; i < objects.size(); i++) {
+            var object = objects.get(i);
+            try (var in = object.getAsset().slice(object.getOffset(), object.getLength())) {
+                blackhole.consume(recursive.get(i).read(object, in));
+            }
+        }
+    }
+
+    @Benchmark
+    public void planned(Blackhole blackhole) {
+        for (int i = 0; i < objects.size(); i++) {
+            var object = objects.get(i);
+            try (var in = object.getAsset().slice(object.getOffset(), object.getLength())) {
+                blackhole.consume(plans.get(i).read(object, in));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (int i = 0; i < objects.size(); i++) {
+            var object = objects.get(i);
+            try (var in = object.getAsset().slice(object.getOffset(), object.getLength())) {
+                blackhole.consume(compiled.get(i).read(object, in));
+            }
+        }
+    }
+}
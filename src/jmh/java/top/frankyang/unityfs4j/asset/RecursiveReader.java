@@ -0,0 +1,127 @@
+package top.frankyang.unityfs4j.asset;
+
+import top.frankyang.unityfs4j.exception.ObjectFormatException;
+import top.frankyang.unityfs4j.impl.StreamData;
+import top.frankyang.unityfs4j.io.RandomAccess;
+import top.frankyang.unityfs4j.util.BufferUtils;
+import top.frankyang.unityfs4j.util.StringUtils;
+
+import java.util.LinkedHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * How objects were read before there were plans or compiled readers: a walk of the type tree, switching on type
+ * names at every node. Kept as it was, only for the benchmark to measure the other two against.
+ */
+class RecursiveReader implements ObjectReader {
+    private final UnityType root;
+
+    RecursiveReader(UnityType root) {
+        this.root = root;
+    }
+
+    @Override
+    public Object read(ObjectInfo info, RandomAccess in) {
+        return read(info, root, in);
+    }
+
+    private Object read(ObjectInfo info, UnityType unityType, RandomAccess buf) {
+        Object result;
+        var align = false;
+        var expected = unityType.getSize();
+        var ptrBefore = buf.tell();
+
+        var firstChild =
+            unityType.getChildren().size() > 0 ? unityType.getChildren().get(0) : UnityType.DUMMY;
+        var type = unityType.getType();
+        if (type.isEmpty()) {
+            type = "SInt32";
+        }
+        // Read primitive
+        result = switch (type) {
+            case "bool" -> buf.readBoolean();
+            case "SInt8" -> buf.readByte();
+            case "UInt8", "char" -> buf.readUnsignedByte();
+            case "SInt16", "short" -> buf.readShort();
+            case "UInt16", "unsigned short" -> buf.readUnsignedShort();
+            case "SInt32", "int" -> buf.readInt();
+            case "UInt32", "unsigned int" -> buf.readUnsignedInt();
+            case "SInt64", "long" -> buf.readLong();
+            case "UInt64", "unsigned long" -> buf.readUnsignedLong();
+            case "float" -> buf.align().readFloat();
+            case "double" -> buf.align().readDouble();
+            case "string" -> {
+                var size = unityType.getSize();
+                align = firstChild.isAligned();
+                yield StringUtils.bytesOrString(BufferUtils.read(buf, size < 0 ? buf.readInt() : size), UTF_8);
+            }
+            default -> null;
+        };
+        if (result == null) {  // Non-primitive
+            if (isArray(unityType)) {  // Array type
+                firstChild = unityType;
+            }
+            if (isArray(firstChild)) {  // Read array
+                align = firstChild.isAligned();
+                result = readArray(info, buf.readInt(), firstChild.getChildren().get(1), buf);
+            } else {  // Read normal object
+                var exposed = type.startsWith("Exposed");
+                var raw = new LinkedHashMap<String, Object>();
+                for (UnityType child : unityType.getChildren()) {
+                    raw.put(child.getName(), exposed ?
+                        readExposed(info, child, buf) : read(info, child, buf)
+                    );
+                }
+                result = info.createObject(unityType, raw);
+                if (result instanceof StreamData sd) {
+                    sd.setAsset(info.getAsset().resolveAsset(sd.getPath()));
+                }
+            }
+        }
+
+        var ptrAfter = buf.tell();
+        var actualSize = ptrAfter - ptrBefore;
+        if (expected > 0 && actualSize < expected) {
+            throw new ObjectFormatException(expected + " byte(s) expected, got " + actualSize);
+        }
+        if (align || unityType.isAligned()) {
+            buf.align();
+        }
+        return result;
+    }
+
+    private Object readExposed(ObjectInfo info, UnityType unityType, RandomAccess buf) {
+        if ("exposedName".equals(unityType.getName())) {
+            buf.readInt();
+            return "";
+        }
+        return read(info, unityType, buf);
+    }
+
+    private Object readArray(ObjectInfo info, int size, UnityType elemType, RandomAccess buf) {
+        return switch (elemType.getType()) {
+            case "bool" -> BufferUtils.readBooleans(buf, size);
+            case "char", "SInt8", "UInt8" -> BufferUtils.read(buf, size);
+            case "SInt16", "short" -> BufferUtils.readShorts(buf, size);
+            case "UInt16", "unsigned short" -> BufferUtils.readUnsignedShorts(buf, size);
+            case "SInt32", "int" -> BufferUtils.readInts(buf, size);
+            case "UInt32", "unsigned int" -> BufferUtils.readUnsignedInts(buf, size);
+            case "SInt64", "long" -> BufferUtils.readLongs(buf, size);
+            case "UInt64", "unsigned long" -> BufferUtils.readUnsignedLongs(buf, size);
+            case "float" -> BufferUtils.readFloats(buf.align(), size);
+            case "double" -> BufferUtils.readDoubles(buf.align(), size);
+            default -> {
+                Object[] array = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    array[i] = read(info, elemType, buf);
+                }
+                yield array;
+            }
+        };
+    }
+
+    private static boolean isArray(UnityType type) {
+        return type != null && type.isArray();
+    }
+}
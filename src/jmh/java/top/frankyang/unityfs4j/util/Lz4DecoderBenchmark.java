@@ -0,0 +1,65 @@
+package top.frankyang.unityfs4j.util;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.openjdk.jmh.annotations.*;
+import top.frankyang.unityfs4j.Compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Lz4DecoderBenchmark {
+    private static final int BLOCK_SIZE = 128 * 1024;  // What Unity writes for LZ4HC
+
+    ByteBuffer source;  // Direct, like a mapped file
+
+    byte[] target = new byte[BLOCK_SIZE];
+
+    @Setup
+    public void setup() throws IOException {
+        var random = new Random(42);
+        var data = new byte[BLOCK_SIZE];
+        for (int i = 0; i < data.length; ) {  // Short runs of a small alphabet, roughly like serialized objects
+            var run = 1 + random.nextInt(24);
+            var b = (byte) random.nextInt(16);
+            for (int j = 0; j < run && i < data.length; j++) {
+                data[i++] = random.nextInt(4) == 0 ? (byte) random.nextInt(256) : b;
+            }
+        }
+        var out = new ByteArrayOutputStream();
+        try (var lz4 = new BlockLZ4CompressorOutputStream(out)) {
+            lz4.write(data);
+        }
+        var compressed = out.toByteArray();
+        source = ByteBuffer.allocateDirect(compressed.length).put(compressed).flip();
+    }
+
+    @Benchmark
+    public byte[] commonsCompress() {
+        return CompressionUtils.decompress(BufferUtils.asInputStream(source.duplicate()), BLOCK_SIZE, Compression.LZ4);
+    }
+
+    @Benchmark
+    public int lz4Decoder() {
+        return Lz4Decoder.decode(source.duplicate(), target, 0, BLOCK_SIZE);
+    }
+
+    @Benchmark
+    public int lz4DecoderDirect(DirectTarget state) {
+        state.buffer.clear();
+        return Lz4Decoder.decode(source.duplicate(), state.buffer);
+    }
+
+    @State(Scope.Thread)
+    public static class DirectTarget {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+    }
+}
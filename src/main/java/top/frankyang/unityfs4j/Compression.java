@@ -1,9 +1,16 @@
 package top.frankyang.unityfs4j;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
 public enum Compression {
-    NONE,
-    LZMA,
-    LZ4,
-    LZ4HC,
-    LZHAM
+    NONE(1),
+    LZMA(16),
+    LZ4(2),
+    LZ4HC(2),
+    LZHAM(16);
+
+    private final int cost;  // Relative cost to redo the decompression, used by cache eviction
 }
@@ -0,0 +1,27 @@
+package top.frankyang.unityfs4j;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Getter
+@Builder
+public class DiscoveryOptions {
+    @Builder.Default
+    private final Executor executor = ForkJoinPool.commonPool();
+
+    @Builder.Default
+    private final int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;  // Files being loaded, not those left open, see StreamLimits
+
+    @Builder.Default
+    private final ProgressListener listener = (path, done, total) -> {
+    };
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(Path path, int done, int total);  // From any thread, once per file, failed or not
+    }
+}
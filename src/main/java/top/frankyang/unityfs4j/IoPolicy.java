@@ -0,0 +1,42 @@
+package top.frankyang.unityfs4j;
+
+import lombok.Builder;
+import lombok.Getter;
+import top.frankyang.unityfs4j.cache.BufferPool;
+import top.frankyang.unityfs4j.io.ByteSource;
+import top.frankyang.unityfs4j.io.IoBackend;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+@Getter
+@Builder
+public class IoPolicy implements IoBackend {  // Picks a backend for each file by its size
+    public static final IoPolicy DEFAULT = builder().build();
+
+    @Builder.Default
+    private final long smallFileSize = 1 << 16;  // Up to which files are small
+
+    @Builder.Default
+    private final long largeFileSize = Integer.MAX_VALUE;  // Above which files are large
+
+    @Builder.Default
+    private final IoBackend smallFiles = IoBackend.HEAP;
+
+    @Builder.Default
+    private final IoBackend files = IoBackend.MAP;
+
+    @Builder.Default
+    private final IoBackend largeFiles = IoBackend.WINDOWED_MAP;
+
+    public IoBackend choose(long size) {
+        if (size <= smallFileSize) return smallFiles;
+        if (size > largeFileSize) return largeFiles;
+        return files;
+    }
+
+    @Override
+    public ByteSource open(FileChannel channel, BufferPool pool) throws IOException {
+        return choose(channel.size()).open(channel, pool);
+    }
+}
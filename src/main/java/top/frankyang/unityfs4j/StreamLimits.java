@@ -0,0 +1,29 @@
+package top.frankyang.unityfs4j;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Getter
+@Builder
+public class StreamLimits {
+    public static final StreamLimits NONE = builder().build();
+
+    @Builder.Default
+    private final int maxOpenStreams = Integer.MAX_VALUE;  // With their file open or mapped
+
+    @Builder.Default
+    private final long maxOpenBytes = Long.MAX_VALUE;  // Sum of the sizes of those files
+
+    @Builder.Default
+    private final int maxLoadedAssets = Integer.MAX_VALUE;  // With their object tables parsed
+
+    @Builder.Default
+    private final Executor trimExecutor = ForkJoinPool.commonPool();  // Never the caller's, who may hold asset locks
+
+    public boolean isExceeded(int openStreams, long openBytes, int loadedAssets) {
+        return openStreams > maxOpenStreams || openBytes > maxOpenBytes || loadedAssets > maxLoadedAssets;
+    }
+}
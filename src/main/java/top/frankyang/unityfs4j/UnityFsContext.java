@@ -1,40 +1,123 @@
 package top.frankyang.unityfs4j;
 
+import lombok.AccessLevel;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import org.apache.commons.io.IOUtils;
 import top.frankyang.unityfs4j.asset.Asset;
+import top.frankyang.unityfs4j.asset.TypeTreeRegistry;
+import top.frankyang.unityfs4j.cache.BlockCache;
+import top.frankyang.unityfs4j.cache.BufferPool;
+import top.frankyang.unityfs4j.cache.MemoryBlockCache;
 import top.frankyang.unityfs4j.exception.UnresolvedAssetException;
+import top.frankyang.unityfs4j.index.BundleEntry;
+import top.frankyang.unityfs4j.index.UnityFsIndex;
 
 import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Getter
 public class UnityFsContext implements Closeable {
+    private static final System.Logger LOGGER = System.getLogger(UnityFsContext.class.getName());
+
     private final Map<Path, UnityFsStream> pathStreamMap = new ConcurrentHashMap<>();
 
     private final Map<String, UnityFsStream> nameStreamMap = new ConcurrentHashMap<>();
 
     private final Map<String, Asset> assets = new ConcurrentHashMap<>();
 
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Asset> archiveAssets = new ConcurrentHashMap<>();  // "bundle/asset", lower case
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Asset> resolvedPaths = new ConcurrentHashMap<>();  // As written in the references
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Path, CompletableFuture<UnityFsStream>> loadingStreams = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Path, FileStamp> stamps = new ConcurrentHashMap<>();  // Of every path as loaded, for refresh()
+
+    @Getter(AccessLevel.NONE)
+    private final Set<Path> pendingPaths = ConcurrentHashMap.newKeySet();  // Changed but failed to reload, retried
+
+    @Getter(AccessLevel.NONE)
+    private final Set<UnityFsStream> residentStreams = ConcurrentHashMap.newKeySet();  // Open or with assets loaded
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong openBytes = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger loadedAssets = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean trimScheduled = new AtomicBoolean();
+
     private final Path rootPath;
 
+    private final BlockCache blockCache;
+
+    private final BufferPool bufferPool = new BufferPool(Runtime.getRuntime().maxMemory() / 16);
+
+    private final UnityFsIndex index;  // Optional
+
+    private final StreamLimits limits;
+
+    private final IoPolicy ioPolicy;
+
+    private final TypeTreeRegistry typeTrees = new TypeTreeRegistry();  // Shared by all the assets
+
     private boolean closed;
 
     public UnityFsContext(Path rootPath) throws IOException {
+        this(rootPath, null);
+    }
+
+    public UnityFsContext(Path rootPath, BlockCache blockCache) throws IOException {
+        this(rootPath, blockCache, null);
+    }
+
+    public UnityFsContext(Path rootPath, BlockCache blockCache, UnityFsIndex index) throws IOException {
+        this(rootPath, blockCache, index, null, null);
+    }
+
+    @Builder
+    public UnityFsContext(
+        Path rootPath, BlockCache blockCache, UnityFsIndex index, StreamLimits limits, IoPolicy ioPolicy
+    ) throws IOException {
         this.rootPath = rootPath.toAbsolutePath();
+        this.blockCache = blockCache != null ? blockCache : new MemoryBlockCache(Runtime.getRuntime().maxMemory() / 4);
+        this.index = index;
+        this.limits = limits != null ? limits : StreamLimits.NONE;
+        this.ioPolicy = ioPolicy != null ? ioPolicy : IoPolicy.DEFAULT;
         if (!Files.isDirectory(this.rootPath)) {
             throw new FileNotFoundException(rootPath + " does not exist or isn't a directory");
         }
@@ -64,6 +147,58 @@ public class UnityFsContext implements Closeable {
             .collect(Collectors.toUnmodifiableSet());
     }
 
+    public Set<UnityFsStream> findStreams(Predicate<Path> predicate, DiscoveryOptions options) throws IOException {
+        List<Path> paths;
+        try (var walk = Files.walk(rootPath)) {
+            paths = walk.filter(Files::isRegularFile).filter(predicate).collect(Collectors.toList());
+        }
+        var total = paths.size();
+        var done = new AtomicInteger();
+        var inFlight = new Semaphore(options.getMaxInFlight());
+        var streams = ConcurrentHashMap.<UnityFsStream>newKeySet();
+        var failures = new ConcurrentLinkedQueue<Throwable>();
+        var futures = new CompletableFuture<?>[total];
+        for (int i = 0; i < total; i++) {
+            var path = paths.get(i);
+            inFlight.acquireUninterruptibly();  // Only so many files opening at once, and queued
+            try {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        streams.add(getStream(path));
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        inFlight.release();
+                    }
+                    notifyProgress(options, path, done.incrementAndGet(), total);
+                }, options.getExecutor());
+            } catch (Throwable t) {  // Rejected, most likely, so let those submitted finish before giving up
+                inFlight.release();
+                CompletableFuture.allOf(Arrays.copyOf(futures, i)).exceptionally(e -> null).join();
+                throw t;
+            }
+        }
+        CompletableFuture.allOf(futures).join();
+
+        var failure = failures.poll();
+        if (failure != null) {  // The first one, with the rest attached
+            failures.forEach(failure::addSuppressed);
+            if (failure instanceof IOException e) throw e;
+            if (failure instanceof RuntimeException e) throw e;
+            if (failure instanceof Error e) throw e;
+            throw new CompletionException(failure);
+        }
+        return Collections.unmodifiableSet(streams);
+    }
+
+    private static void notifyProgress(DiscoveryOptions options, Path path, int done, int total) {
+        try {
+            options.getListener().onProgress(path, done, total);
+        } catch (RuntimeException e) {  // Not to fail the file, nor the whole search
+            LOGGER.log(System.Logger.Level.WARNING, "progress listener failed on " + path, e);
+        }
+    }
+
     @SneakyThrows
     private UnityFsStream getStream0(Path path) {
         return getStream(path);
@@ -74,26 +209,84 @@ public class UnityFsContext implements Closeable {
         if (!path.isAbsolute()) {
             path = rootPath.resolve(path);
         }
-        var ret = pathStreamMap.get(path);  // act-then-check
-        if (ret != null) return ret;
-        ret = new UnityFsStream(FileChannel.open(path), this);
-        ret.load();
-        var name = ret.getName().toLowerCase();
-        UnityFsStream s;
-        if ((s = pathStreamMap.putIfAbsent(path, ret)) != null) {  // Someone else already put one concurrently
-            ret.close();
-            return s;  // Let him do the assets
+        var ret = pathStreamMap.get(path);
+        if (ret != null) {
+            ret.touch();
+            return ret;
         }
-        if ((s = nameStreamMap.putIfAbsent(name, ret)) != null) {  // Someone else already put one concurrently
-            ret.close();
-            return s;  // Let him do the assets
+        var future = new CompletableFuture<UnityFsStream>();
+        var existing = loadingStreams.putIfAbsent(path, future);
+        if (existing != null) {  // Already being opened by another thread, wait for it instead
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                var cause = e.getCause();
+                if (cause instanceof IOException c) throw c;
+                if (cause instanceof RuntimeException c) throw c;
+                throw e;
+            }
+        }
+        try {
+            if ((ret = pathStreamMap.get(path)) == null) {  // Else published right before we got the slot
+                ret = openStream(path);
+            }
+            future.complete(ret);
+            return ret;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            loadingStreams.remove(path);
+        }
+    }
+
+    protected UnityFsStream openStream(Path path) throws IOException {  // Only ever one at a time per path
+        var ret = new UnityFsStream(path, this);
+        try {
+            load(ret, path);
+        } catch (Throwable t) {
+            discard(ret);
+            throw t;
+        }
+        var name = ret.getName().toLowerCase();
+        var s = nameStreamMap.putIfAbsent(name, ret);
+        if (s != null) {  // The same bundle under another path
+            discard(ret);
+            pathStreamMap.put(path, s);
+            return s;
         }
         for (Asset asset : ret.getPayload()) {
-            assets.put(asset.getName().toLowerCase(), asset);
+            var assetName = asset.getName().toLowerCase();
+            assets.put(assetName, asset);
+            archiveAssets.put(name + '/' + assetName, asset);
         }
+        pathStreamMap.put(path, ret);  // Only once its assets can be found
         return ret;
     }
 
+    protected void load(UnityFsStream stream, Path path) throws IOException {
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        var size = attributes.size();
+        var lastModified = attributes.lastModifiedTime().toMillis();
+        stamps.put(path, new FileStamp(size, lastModified));
+        if (index == null) {
+            stream.load();
+            return;
+        }
+        var key = rootPath.relativize(path).toString();
+        var entry = index.lookup(key, size, lastModified);
+        if (entry != null) {
+            stream.load(entry);
+            return;
+        }
+        var payload = stream.load();
+        entry = new BundleEntry(
+            key, size, lastModified, stream.getHeader(), payload.getBaseOffset(), stream.getMetadata()
+        );
+        index.put(entry);
+        payload.setIndexEntry(entry);
+    }
+
     public Asset getAssetByName(String name) {
         ensureOpen();
         name = name.toLowerCase();
@@ -109,19 +302,248 @@ public class UnityFsContext implements Closeable {
         if (!"archive".equals(uri.getScheme())) {
             throw new UnresolvedAssetException(uri.toString());
         }
-        var parts = uri.getPath().substring(1).toLowerCase().split("/");
-        var streamName = parts[0];
-        var assetName = parts[1];
-        var stream = nameStreamMap.get(streamName);  // act-then-check
-        if (stream == null) {
-            throw new UnresolvedAssetException(uri.toString());
+        var asset = archiveAssets.get(uri.getPath().substring(1).toLowerCase());
+        if (asset != null) {
+            return asset;
         }
-        for (Asset asset : stream) {
-            if (assetName.equalsIgnoreCase(asset.getName())) {
-                return asset;
+        throw new UnresolvedAssetException(uri.toString());
+    }
+
+    public Asset resolveAsset(String path) {  // A name or an archive URI, as found in references
+        ensureOpen();
+        var asset = resolvedPaths.get(path);
+        if (asset != null && !asset.isRetired()) {
+            return asset;
+        }
+        asset = path.contains(":") ? getAssetByUri(URI.create(path)) : getAssetByName(path);
+        resolvedPaths.put(path, asset);
+        return asset;
+    }
+
+    public Changes refresh() throws IOException {  // Only what has been loaded
+        return refresh(path -> false);
+    }
+
+    public synchronized Changes refresh(Predicate<Path> predicate) throws IOException {  // And new files matching
+        ensureOpen();
+        var added = new HashSet<Path>();
+        var changed = new HashSet<Path>();
+        var removed = new HashSet<Path>();
+        var failures = new ArrayList<Exception>();
+        var known = new HashSet<>(pathStreamMap.keySet());
+        var pending = new ArrayList<>(pendingPaths);  // Before anything fails to reload this time
+        for (var entry : new ArrayList<>(pathStreamMap.entrySet())) {
+            var path = entry.getKey();
+            var stream = entry.getValue();
+            var attributes = readAttributes(path);
+            var stamp = stamps.get(path);
+            var unchanged = attributes != null && stamp != null && attributes.size() == stamp.size() &&
+                attributes.lastModifiedTime().toMillis() == stamp.lastModified();
+            if (unchanged) continue;
+            if (!path.equals(stream.getPath())) {  // The same bundle under another path
+                pathStreamMap.remove(path, stream);
+                stamps.remove(path);
+                if (attributes == null) {
+                    removed.add(path);
+                } else {
+                    changed.add(path);  // Looked up again when next asked for
+                }
+                continue;
+            }
+            if (attributes == null) {
+                unpublish(path, stream);
+                removed.add(path);
+            } else {
+                var fresh = new UnityFsStream(path, this);
+                try {
+                    load(fresh, path);
+                } catch (Exception e) {  // Probably still being written, so dropped until the next refresh
+                    discard(fresh);
+                    unpublish(path, stream);
+                    pendingPaths.add(path);
+                    failures.add(e);
+                    continue;
+                }
+                replace(path, stream, fresh);
+                changed.add(path);
             }
         }
-        throw new UnresolvedAssetException(uri.toString());
+        pathStreamMap.entrySet().removeIf(e -> {  // Other paths of what is gone, looked up again when asked for
+            var retired = e.getValue().getPayload().isRetired();
+            if (retired) {
+                stamps.remove(e.getKey());
+            }
+            return retired;
+        });
+        for (var path : pending) {  // Failed to reload the last time round
+            if (pathStreamMap.containsKey(path)) {  // Asked for since
+                pendingPaths.remove(path);
+            } else if (readAttributes(path) == null) {
+                pendingPaths.remove(path);
+                removed.add(path);
+            } else {
+                try {
+                    getStream(path);
+                    pendingPaths.remove(path);
+                    changed.add(path);
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            }
+        }
+        known.addAll(pendingPaths);
+
+        List<Path> paths;
+        try (var walk = Files.walk(rootPath)) {
+            paths = walk.filter(Files::isRegularFile).filter(predicate).collect(Collectors.toList());
+        }
+        for (var path : paths) {
+            if (known.contains(path)) continue;
+            try {
+                getStream(path);
+                added.add(path);
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        }
+
+        if (index != null) {  // Of what is gone, loaded or not
+            index.prune(rootPath);
+        }
+
+        if (!failures.isEmpty()) {  // The first one, with the rest attached
+            var failure = failures.get(0);
+            failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+            if (failure instanceof IOException e) throw e;
+            if (failure instanceof RuntimeException e) throw e;
+            throw new CompletionException(failure);
+        }
+        return new Changes(added, changed, removed);
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) throws IOException {  // Null if gone
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    protected void replace(Path path, UnityFsStream stream, UnityFsStream fresh) {
+        var name = fresh.getName().toLowerCase();
+        var owner = nameStreamMap.get(name);
+        if (owner != null && owner != stream) {  // Now the same bundle as another path
+            discard(fresh);
+            unpublish(path, stream);
+            pathStreamMap.put(path, owner);
+            return;
+        }
+        for (Asset asset : fresh.getPayload()) {  // Each entry swapped in place, never missing in between
+            var assetName = asset.getName().toLowerCase();
+            assets.put(assetName, asset);
+            archiveAssets.put(name + '/' + assetName, asset);
+        }
+        nameStreamMap.put(name, fresh);
+        pathStreamMap.put(path, fresh);
+        unpublish(path, stream);
+    }
+
+    protected void unpublish(Path path, UnityFsStream stream) {  // Whatever of it has not been replaced yet
+        var payload = stream.getPayload();
+        payload.retire();
+        var name = stream.getName().toLowerCase();
+        nameStreamMap.remove(name, stream);
+        if (pathStreamMap.remove(path, stream)) {
+            stamps.remove(path);
+        }
+        for (Asset asset : payload) {
+            var assetName = asset.getName().toLowerCase();
+            assets.remove(assetName, asset);
+            archiveAssets.remove(name + '/' + assetName, asset);
+        }
+        resolvedPaths.values().removeIf(Asset::isRetired);
+        discard(stream);
+    }
+
+    public void streamOpened(UnityFsStream stream) {  // Its file that is, for the first time or again
+        openStreams.incrementAndGet();
+        openBytes.addAndGet(stream.getSource().size());
+        residentStreams.add(stream);
+        stream.touch();
+        scheduleTrim();
+    }
+
+    public void assetLoaded(Asset asset) {  // Or reloaded
+        loadedAssets.incrementAndGet();
+        var stream = asset.getPayload().getStream();
+        if (stream != null) {
+            residentStreams.add(stream);
+            stream.touch();
+        }
+        scheduleTrim();
+    }
+
+    public int getOpenStreams() {
+        return openStreams.get();
+    }
+
+    public long getOpenBytes() {
+        return openBytes.get();
+    }
+
+    public int getLoadedAssets() {
+        return loadedAssets.get();
+    }
+
+    protected boolean isOverLimits() {
+        return limits.isExceeded(openStreams.get(), openBytes.get(), loadedAssets.get());
+    }
+
+    protected void scheduleTrim() {  // Trimmed elsewhere, as the caller may well hold locks of assets
+        if (isOverLimits() && trimScheduled.compareAndSet(false, true)) {
+            try {
+                limits.getTrimExecutor().execute(() -> {
+                    trimScheduled.set(false);
+                    trim();
+                });
+            } catch (RejectedExecutionException e) {  // Over the limits until the next one asks again
+                trimScheduled.set(false);
+            }
+        }
+    }
+
+    public void trim() {  // Releases the least recently used streams until within limits; not under asset locks
+        while (isOverLimits()) {
+            UnityFsStream victim = null;
+            for (var stream : residentStreams) {
+                if (victim == null || stream.getLastUse() < victim.getLastUse()) {
+                    victim = stream;
+                }
+            }
+            if (victim == null) return;
+            release(victim);
+        }
+    }
+
+    protected void release(UnityFsStream stream) {  // Until used again, when it all comes back on demand
+        residentStreams.remove(stream);
+        if (stream.getSource().release()) {
+            openStreams.decrementAndGet();
+            openBytes.addAndGet(-stream.getSource().size());
+        }
+        var payload = stream.getPayload();
+        if (payload == null) return;
+        blockCache.invalidate(payload);
+        for (var asset : payload.getNodeAssetMap().values()) {
+            if (asset.unload()) {
+                loadedAssets.decrementAndGet();
+            }
+        }
+    }
+
+    protected void discard(UnityFsStream stream) {
+        release(stream);
+        stream.close();
     }
 
     protected void ensureOpen() {
@@ -129,10 +551,25 @@ public class UnityFsContext implements Closeable {
     }
 
     @Override
+    @SneakyThrows
     public void close() {
         closed = true;
-        for (var stream : nameStreamMap.values()) {
-            IOUtils.closeQuietly(stream);
+        try {
+            for (var stream : nameStreamMap.values()) {
+                IOUtils.closeQuietly(stream);
+            }
+            blockCache.clear();
+            bufferPool.clear();
+        } finally {  // Whatever failed above, the files and buffers are let go before the index is written
+            if (index != null) {
+                index.save();
+            }
         }
     }
+
+    private record FileStamp(long size, long lastModified) {
+    }
+
+    public record Changes(Set<Path> added, Set<Path> changed, Set<Path> removed) {  // Files, by their paths
+    }
 }
@@ -4,103 +4,182 @@ import lombok.Getter;
 import top.frankyang.unityfs4j.UnityFsMetadata.DataBlock;
 import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
 import top.frankyang.unityfs4j.asset.Asset;
+import top.frankyang.unityfs4j.cache.BlockCache;
+import top.frankyang.unityfs4j.cache.BlockKey;
+import top.frankyang.unityfs4j.cache.BufferPool;
+import top.frankyang.unityfs4j.cache.PooledBuffer;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+import top.frankyang.unityfs4j.index.BundleEntry;
 import top.frankyang.unityfs4j.io.AbstractRandomAccess;
+import top.frankyang.unityfs4j.io.ByteSource;
 import top.frankyang.unityfs4j.util.BufferUtils;
 import top.frankyang.unityfs4j.util.CompressionUtils;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Getter
 public class UnityFsPayload extends AbstractRandomAccess implements Iterable<Asset> {
     private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
 
-    private final Map<DataNode, Asset> nodeAssetMap = new HashMap<>();
+    private final Map<DataNode, Asset> nodeAssetMap = new ConcurrentHashMap<>();
 
-    private final Map<DataBlock, byte[]> blockDataMap = new HashMap<>();
-
-    private final ByteBuffer buffer;
+    private final ByteSource source;
 
     private final UnityFsMetadata metadata;
 
     private final UnityFsContext context;
 
+    private final BlockCache blockCache;
+
+    private final BufferPool bufferPool;
+
     private final List<DataBlock> dataBlocks;
 
-    private final int baseOffset;
+    private final long[] zippedOffsets;  // Cumulative, one more than the blocks
+
+    private final long[] actualOffsets;  // Cumulative, one more than the blocks
+
+    private final long baseOffset;
 
-    private final int actualSize;
+    private final long actualSize;
 
-    protected int ptr;
+    private final Cursor cursor;  // Backs reading through the payload itself
 
-    protected DataBlock curBlock;
+    private volatile BundleEntry indexEntry;  // Where the assets go once loaded, if indexed
 
-    protected ByteBuffer curBuffer;
+    private volatile UnityFsStream stream;  // Null if not from one
 
-    protected int curOffset;
+    private volatile boolean retired;  // Replaced or removed from its context
 
-    protected UnityFsPayload(ByteBuffer buffer, UnityFsMetadata metadata, UnityFsContext context) {
-        this.buffer = buffer;
+    protected UnityFsPayload(ByteSource source, long baseOffset, UnityFsMetadata metadata, UnityFsContext context) {
+        this.source = source;
+        this.baseOffset = baseOffset;
         this.metadata = metadata;
         this.context = context;
+        blockCache = context.getBlockCache();
+        bufferPool = context.getBufferPool();
         dataBlocks = metadata.dataBlocks();
-        baseOffset = buffer.position();
-        actualSize = dataBlocks.stream().mapToInt(DataBlock::actualSize).sum();
-        seek(0);
-    }
-
-    protected void seekToBlock(long offset) {
-        int zippedOffset = 0;
-        int actualOffset = 0;
-        loop:
-        {
-            for (var block : dataBlocks) {
-                if (actualOffset + block.actualSize() > offset) {
-                    curBlock = block;
-                    break loop;
-                }
-                zippedOffset += block.zippedSize();
-                actualOffset += block.actualSize();
-            }
-            curBlock = null;
-            curOffset = actualSize;
-            curBuffer = EMPTY_BUFFER;
-            return;
+        zippedOffsets = new long[dataBlocks.size() + 1];
+        actualOffsets = new long[dataBlocks.size() + 1];
+        for (int i = 0; i < dataBlocks.size(); i++) {
+            var block = dataBlocks.get(i);
+            zippedOffsets[i + 1] = zippedOffsets[i] + block.zippedSize();
+            actualOffsets[i + 1] = actualOffsets[i] + block.actualSize();
         }
-        curOffset = actualOffset;
-        buffer.position(this.baseOffset + zippedOffset);
-        byte[] bytes = blockDataMap.computeIfAbsent(curBlock, cb ->
-            CompressionUtils.decompress(
-                BufferUtils.asInputStream(buffer),
-                cb.actualSize(),
-                cb.compression()
-            )
-        );
-        curBuffer = ByteBuffer.wrap(bytes);
+        actualSize = actualOffsets[dataBlocks.size()];
+        cursor = cursor();
     }
 
-    protected boolean shouldSeek(long offset) {
-        if (curBlock == null) return true;
-        var currentBlockMax = curOffset + curBlock.actualSize();
-        return curOffset > offset || offset >= currentBlockMax;
+    void setIndexEntry(BundleEntry indexEntry) {
+        this.indexEntry = indexEntry;
+    }
+
+    void setStream(UnityFsStream stream) {
+        this.stream = stream;
+    }
+
+    public void touch() {
+        var stream = this.stream;
+        if (stream != null) {
+            stream.touch();
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor(0, actualSize);
     }
 
     @Override
-    public void seek(long offset) {
-        if (ptr == offset) return;
-        ptr = (int) offset;
-        if (shouldSeek(offset)) {
-            seekToBlock(offset);
+    public Cursor slice(long offset, long length) {  // In the endianness of the payload itself
+        var ret = new Cursor(offset, length);
+        ret.setBigEndian(isBigEndian());
+        return ret;
+    }
+
+    public CompletableFuture<Void> prefetch(Executor executor) {
+        return prefetch(0, dataBlocks.size(), executor);
+    }
+
+    public CompletableFuture<Void> prefetch(int fromBlock, int toBlock, Executor executor) {  // [fromBlock, toBlock)
+        if (fromBlock < 0 || toBlock > dataBlocks.size() || fromBlock > toBlock) {
+            throw new IndexOutOfBoundsException("[" + fromBlock + ", " + toBlock + ") out of " + dataBlocks.size());
+        }
+        var futures = new ArrayList<CompletableFuture<?>>(toBlock - fromBlock);
+        for (int i = fromBlock; i < toBlock; i++) {
+            if (isFree(i)) continue;  // Nothing to do
+            int index = i;
+            futures.add(CompletableFuture.runAsync(() -> getBlock(index).release(), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    public ByteBuffer getZippedBlock(int index) {  // Fresh view of the block as stored in the file
+        return source.slice(baseOffset + zippedOffsets[index], dataBlocks.get(index).zippedSize());
+    }
+
+    protected PooledBuffer getBlock(int index) {  // Retained for the caller, who must release it
+        touch();
+        var block = dataBlocks.get(index);
+        if (isFree(index)) {  // Served right from the mapping, nothing to keep
+            return source.read(baseOffset + zippedOffsets[index], block.actualSize());
+        }
+        return blockCache.get(new BlockKey(this, index), block.compression(), () -> decompress(index));
+    }
+
+    protected boolean isFree(int index) {  // Stored as is, and a view of the file to read again
+        var block = dataBlocks.get(index);
+        var offset = baseOffset + zippedOffsets[index];
+        return block.compression() == Compression.NONE && source.isView(offset, block.actualSize());
+    }
+
+    protected PooledBuffer decompress(int index) {
+        var block = dataBlocks.get(index);
+        if (block.compression() == Compression.NONE) {  // A copy already, read or straddling segments
+            return source.read(baseOffset + zippedOffsets[index], block.actualSize());
+        }
+        var zipped = source.read(baseOffset + zippedOffsets[index], block.zippedSize());
+        var data = bufferPool.allocate(block.actualSize());
+        try {
+            CompressionUtils.decompress(zipped.buffer(), data.buffer(), block.compression());
+            return data;
+        } catch (RuntimeException e) {
+            data.release();
+            throw e;
+        } finally {
+            zipped.release();
         }
-        curBuffer.position((int) offset - curOffset);
+    }
+
+    protected int indexOf(long offset) {  // Index of the block containing offset, or -1 if out of range
+        if (offset < 0 || offset >= actualSize) return -1;
+        int low = 0, high = dataBlocks.size() - 1;
+        while (low < high) {  // Last block starting at or before offset, skipping empty blocks
+            int mid = (low + high + 1) >>> 1;
+            if (actualOffsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void seek(long offset) {
+        cursor.seek(offset);
     }
 
     @Override
     public long tell() {
-        return ptr;
+        return cursor.tell();
     }
 
     @Override
@@ -108,31 +187,43 @@ public class UnityFsPayload extends AbstractRandomAccess implements Iterable<Ass
         return actualSize;
     }
 
+    @Override
+    public void setBigEndian(boolean bigEndian) {
+        super.setBigEndian(bigEndian);
+        cursor.setBigEndian(bigEndian);
+    }
+
+    @Override
+    protected ByteBuffer buffered(int length) {
+        return cursor.buffered(length);
+    }
+
+    @Override
+    protected void advance(int length) {
+        cursor.advance(length);
+    }
+
     @Override
     public int read() {
-        if (shouldSeek(ptr)) {
-            seekToBlock(ptr);
-        }
-        var ret = BufferUtils.read(curBuffer);
-        if (ret >= 0) {
-            ptr++;
-        }
-        return ret;
+        return cursor.read();
     }
 
     @Override
     public int read(byte[] b, int off, int len) {
-        int allRead = 0;
-        while (len > 0 && ptr < actualSize) {
-            if (shouldSeek(ptr)) {
-                seekToBlock(ptr);
-            }
-            int read = BufferUtils.read(curBuffer, b, off, len);
-            ptr += read;
-            len -= read;
-            allRead += read;
+        return cursor.read(b, off, len);
+    }
+
+    void retire() {
+        retired = true;
+        for (var asset : this) {
+            asset.retire();
         }
-        return allRead;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+        blockCache.invalidate(this);
     }
 
     @Override
@@ -153,4 +244,188 @@ public class UnityFsPayload extends AbstractRandomAccess implements Iterable<Ass
             return nodeAssetMap.computeIfAbsent(itr.next(), node -> new Asset(UnityFsPayload.this, node));
         }
     }
+
+    /*
+     * An independent position and endianness over the payload. Block data is shared through the block cache,
+     * so any number of cursors may read one payload concurrently, as long as each stays on its own thread.
+     * A cursor holds on to the block it is in until it moves on or is closed. It may be bounded to a range,
+     * outside which it neither seeks nor reads; positions are relative to the start of that range.
+     */
+    public class Cursor extends AbstractRandomAccess {
+        protected final long start;
+
+        protected final long end;
+
+        protected long ptr;  // Absolute
+
+        protected int curIndex = -1;
+
+        protected DataBlock curBlock;
+
+        protected PooledBuffer curData;
+
+        protected ByteBuffer curBuffer = EMPTY_BUFFER;
+
+        protected long curOffset;
+
+        protected Cursor(long offset, long length) {
+            Objects.checkFromIndexSize(offset, length, actualSize);
+            start = ptr = offset;
+            end = offset + length;
+        }
+
+        @Override
+        public Cursor slice(long offset, long length) {
+            Objects.checkFromIndexSize(offset, length, size());
+            var ret = new Cursor(start + offset, length);
+            ret.setBigEndian(isBigEndian());
+            return ret;
+        }
+
+        public UnityFsPayload getPayload() {
+            return UnityFsPayload.this;
+        }
+
+        protected void seekToBlock(long offset) {
+            var index = indexOf(offset);
+            releaseBlock();
+            if (index < 0) {
+                curOffset = actualSize;
+                return;
+            }
+            var data = getBlock(index);
+            if (data.size() != dataBlocks.get(index).actualSize()) {  // Whatever the cache or codec made of it
+                data.release();
+                throw new DataFormatException("block " + index + " is " + data.size() + " bytes, not " +
+                    dataBlocks.get(index).actualSize());
+            }
+            curData = data;
+            curIndex = index;
+            curBlock = dataBlocks.get(index);
+            curOffset = actualOffsets[index];
+            curBuffer = curData.buffer().asReadOnlyBuffer().order(order);
+            if (end - curOffset < curBuffer.limit()) {  // Never to be read past the end
+                curBuffer.limit((int) (end - curOffset));
+            }
+            curBuffer.position((int) (offset - curOffset));
+        }
+
+        protected void releaseBlock() {
+            if (curData != null) {
+                curData.release();
+                curData = null;
+            }
+            curIndex = -1;
+            curBlock = null;
+            curBuffer = EMPTY_BUFFER;
+        }
+
+        protected boolean shouldSeek(long offset) {
+            if (curIndex < 0) return true;
+            return offset < actualOffsets[curIndex] || offset >= actualOffsets[curIndex + 1];
+        }
+
+        @Override
+        public void seek(long offset) {
+            if (offset < 0 || offset > end - start) {
+                throw new IllegalArgumentException("seek out of range: " + offset);
+            }
+            offset += start;
+            if (ptr == offset) return;
+            ptr = offset;
+            if (ptr == end) return;  // Nothing to read there anyway
+            if (shouldSeek(offset)) {
+                seekToBlock(offset);
+            } else {
+                curBuffer.position((int) (offset - curOffset));
+            }
+        }
+
+        @Override
+        public long tell() {
+            return ptr - start;
+        }
+
+        @Override
+        public void setBigEndian(boolean bigEndian) {
+            super.setBigEndian(bigEndian);
+            if (curData != null) {  // Never the shared empty buffer
+                curBuffer.order(order);
+            }
+        }
+
+        @Override
+        protected ByteBuffer buffered(int length) {
+            if (ptr >= end) return null;
+            if (shouldSeek(ptr)) {
+                seekToBlock(ptr);
+            }
+            return curBuffer.remaining() >= length ? curBuffer : null;
+        }
+
+        @Override
+        protected void advance(int length) {
+            ptr += length;
+        }
+
+        @Override
+        public long size() {
+            return end - start;
+        }
+
+        @Override
+        public int read() {
+            if (ptr >= end) return -1;
+            if (shouldSeek(ptr)) {
+                seekToBlock(ptr);
+            }
+            var ret = BufferUtils.read(curBuffer);
+            if (ret < 0) throw noProgress();
+            ptr++;
+            return ret;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len > 0 && ptr >= end) return -1;  // Else readFully() would wait on it for ever
+            int allRead = 0;
+            while (len > 0 && ptr < end) {
+                if (shouldSeek(ptr)) {
+                    seekToBlock(ptr);
+                }
+                int read = BufferUtils.read(curBuffer, b, off, len);
+                if (read <= 0) throw noProgress();
+                ptr += read;
+                off += read;
+                len -= read;
+                allRead += read;
+            }
+            return allRead;
+        }
+
+        public int read(ByteBuffer dst) {  // Block to buffer, without a stop on the heap
+            int allRead = 0;
+            while (dst.hasRemaining() && ptr < end) {
+                if (shouldSeek(ptr)) {
+                    seekToBlock(ptr);
+                }
+                int read = Math.min(dst.remaining(), curBuffer.remaining());
+                if (read <= 0) throw noProgress();
+                dst.put(curBuffer.slice(curBuffer.position(), read));
+                curBuffer.position(curBuffer.position() + read);
+                ptr += read;
+                allRead += read;
+            }
+            return allRead;
+        }
+
+        protected DataFormatException noProgress() {  // Short of the end, yet nothing left of the block, which would spin
+            return new DataFormatException("block " + curIndex + " ends short at " + ptr);
+        }
+
+        @Override
+        public void close() {
+            releaseBlock();
+        }
+    }
 }
@@ -6,32 +6,31 @@ import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
 import top.frankyang.unityfs4j.asset.Asset;
 import top.frankyang.unityfs4j.exception.DataFormatException;
 import top.frankyang.unityfs4j.exception.NotYetReadException;
-import top.frankyang.unityfs4j.io.EndianDataInputStream;
+import top.frankyang.unityfs4j.index.BundleEntry;
+import top.frankyang.unityfs4j.io.FileByteSource;
+import top.frankyang.unityfs4j.io.RandomAccess;
 import top.frankyang.unityfs4j.util.BufferUtils;
 import top.frankyang.unityfs4j.util.CompressionUtils;
+import top.frankyang.unityfs4j.util.StringTable;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.UUID;
 
-import static java.nio.ByteOrder.BIG_ENDIAN;
-import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
-
 @Getter
 public class UnityFsStream implements Iterable<Asset>, Closeable {
     public static final String MAGIC_WORD = "UnityFS";
 
+    private static final int HEADER_WINDOW = 1 << 12;  // Far more than the header ever takes
+
     private final UnityFsContext context;
 
-    private final FileChannel channel;
+    private final Path path;
 
-    private final ByteBuffer buffer;
+    private final FileByteSource source;
 
     protected UnityFsHeader header;
 
@@ -41,13 +40,20 @@ public class UnityFsStream implements Iterable<Asset>, Closeable {
 
     protected String name;
 
-    protected UnityFsStream(FileChannel channel, UnityFsContext context) throws IOException {
-        this.channel = channel;
+    protected volatile long lastUse = System.nanoTime();
+
+    protected UnityFsStream(Path path, UnityFsContext context) {
+        this.path = path;
         this.context = context;
-        buffer = channel.map(READ_ONLY, 0, channel.size()).order(BIG_ENDIAN);
+        source = new FileByteSource(path, context.getIoPolicy(), context.getBufferPool(), () -> context.streamOpened(this));
+    }
+
+    public void touch() {
+        lastUse = System.nanoTime();
     }
 
     public UnityFsPayload load() {
+        var buffer = source.slice(0, (int) Math.min(source.size(), HEADER_WINDOW));
         var magicWord = BufferUtils.getString(buffer);
         if (!magicWord.equals(MAGIC_WORD)) {
             throw new DataFormatException(
@@ -56,8 +62,8 @@ public class UnityFsStream implements Iterable<Asset>, Closeable {
         }
 
         var fileVersion = buffer.getInt();
-        var playerVersion = BufferUtils.getString(buffer);
-        var engineVersion = BufferUtils.getString(buffer);
+        var playerVersion = BufferUtils.getString(buffer, StringTable.getShared());
+        var engineVersion = BufferUtils.getString(buffer, StringTable.getShared());
 
         var length = buffer.getLong();
         var zippedSize = buffer.getInt();
@@ -69,21 +75,17 @@ public class UnityFsStream implements Iterable<Asset>, Closeable {
             length, zippedSize, actualSize, flag
         );
 
-        int pointer = 0;
+        long baseOffset = buffer.position();
+        ByteBuffer zipped;
         if (header.eofMetadata()) {
-            pointer = buffer.position();
-            BufferUtils.seekTail(buffer, header.zippedSize());
-        }
-        var bytes = CompressionUtils.decompress(
-            BufferUtils.asInputStream(buffer),
-            header.actualSize(),
-            header.compression()
-        );
-        if (header.eofMetadata()) {
-            buffer.position(pointer);
+            zipped = source.slice(source.size() - header.zippedSize(), header.zippedSize());
+        } else {
+            zipped = source.slice(baseOffset, header.zippedSize());
+            baseOffset += header.zippedSize();
         }
+        var bytes = CompressionUtils.decompress(zipped, header.actualSize(), header.compression());
 
-        var in = new EndianDataInputStream(new ByteArrayInputStream(bytes));
+        var in = RandomAccess.of(bytes);
         var uuid = new UUID(in.readLong(), in.readLong());
 
         var blockCount = in.readInt();
@@ -107,7 +109,19 @@ public class UnityFsStream implements Iterable<Asset>, Closeable {
         }
 
         name = nodes.get(0).name();
-        return payload = new UnityFsPayload(buffer, metadata = new UnityFsMetadata(uuid, blocks, nodes), context);
+        payload = new UnityFsPayload(source, baseOffset, metadata = new UnityFsMetadata(uuid, blocks, nodes), context);
+        payload.setStream(this);
+        return payload;
+    }
+
+    public UnityFsPayload load(BundleEntry entry) {  // Without reading a byte of the file
+        header = entry.getHeader();
+        metadata = entry.getMetadata();
+        name = metadata.dataNodes().get(0).name();
+        payload = new UnityFsPayload(source, entry.getBaseOffset(), metadata, context);
+        payload.setStream(this);
+        payload.setIndexEntry(entry);
+        return payload;
     }
 
     @Override
@@ -119,7 +133,10 @@ public class UnityFsStream implements Iterable<Asset>, Closeable {
     }
 
     @Override
-    public void close() throws IOException {
-        channel.close();
+    public void close() {
+        if (payload != null) {
+            payload.close();
+        }
+        source.close();
     }
 }
@@ -1,7 +1,6 @@
 package top.frankyang.unityfs4j.asset;
 
 import lombok.Getter;
-import lombok.SneakyThrows;
 
 import top.frankyang.unityfs4j.UnityFsContext;
 import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
@@ -9,21 +8,24 @@ import top.frankyang.unityfs4j.UnityFsPayload;
 import top.frankyang.unityfs4j.exception.DataFormatException;
 import top.frankyang.unityfs4j.exception.ObjectRegistryException;
 import top.frankyang.unityfs4j.exception.UnresolvedAssetException;
+import top.frankyang.unityfs4j.index.AssetEntry;
+import top.frankyang.unityfs4j.index.AssetEntry.ObjectEntry;
+import top.frankyang.unityfs4j.index.AssetEntry.ReferenceEntry;
 import top.frankyang.unityfs4j.io.RandomAccess;
 import top.frankyang.unityfs4j.util.LongIntPair;
 
-import java.net.URI;
 import java.util.*;
+import java.util.function.Supplier;
 
 @Getter
 public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
-    protected final ArrayList<LongIntPair> adds = new ArrayList<>();
+    protected ArrayList<LongIntPair> adds = new ArrayList<>();  // All four swapped anew by unload()
 
-    protected final ArrayList<AssetResolvable> refs = new ArrayList<>();
+    protected ArrayList<AssetResolvable> refs = new ArrayList<>();
 
-    protected final Map<Integer, UnityType> types = new HashMap<>();
+    protected Map<Integer, UnityType> types = new HashMap<>();
 
-    protected final Map<Long, ObjectInfo> objects = new LinkedHashMap<>();
+    protected Map<Long, ObjectInfo> objects = new LinkedHashMap<>();
 
     private final UnityFsPayload payload;
 
@@ -39,8 +41,14 @@ public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
 
     protected boolean loading;
 
+    protected boolean typesMapped;
+
+    protected volatile boolean retired;  // Replaced or removed from its context
+
     protected boolean longObjectId;
 
+    protected boolean bigEndian;
+
     protected int metadataLength;
 
     protected int contentLength;
@@ -62,23 +70,30 @@ public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
     }
 
     public List<LongIntPair> getAdds() {
-        ensureLoaded();
-        return Collections.unmodifiableList(adds);
+        return whenLoaded(() -> Collections.unmodifiableList(adds));
     }
 
     public List<AssetResolvable> getRefs() {
-        ensureLoaded();
-        return Collections.unmodifiableList(refs);
+        return whenLoaded(() -> Collections.unmodifiableList(refs));
     }
 
     public Map<Integer, UnityType> getTypes() {
-        ensureLoaded();
-        return Collections.unmodifiableMap(types);
+        return whenLoaded(() -> {
+            if (!typesMapped) {  // Only now, as the type trees may not have been parsed yet
+                objects.values().forEach(this::mapType);
+                typesMapped = true;
+            }
+            return Collections.unmodifiableMap(types);
+        });
     }
 
     public Map<Long, ObjectInfo> getObjects() {
+        return whenLoaded(() -> Collections.unmodifiableMap(objects));
+    }
+
+    public boolean isBigEndian() {
         ensureLoaded();
-        return Collections.unmodifiableMap(objects);
+        return bigEndian;
     }
 
     public boolean isLongObjectId() {
@@ -110,74 +125,177 @@ public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
         return name.endsWith(".resource") || name.endsWith(".resS");
     }
 
-    public synchronized void ensureLoaded() {
-        if (loaded || loading) return;
+    protected <T> T whenLoaded(Supplier<T> getter) {  // Read under the lock, as it may be unloaded at any time
+        while (true) {
+            ensureLoaded();
+            synchronized (this) {
+                if (loaded) return getter.get();
+            }
+        }
+    }
+
+    public void ensureLoaded() {
+        if (ensureLoaded0() && context != null) {  // Told outside the lock, as it may unload others
+            context.assetLoaded(this);
+        }
+    }
+
+    protected synchronized boolean ensureLoaded0() {  // Whether it has just been loaded
+        if (loaded || loading) return false;
         if (isResource()) {
             loaded = true;
-            return;
+            return false;
         }
         try {
             loading = true;
-            load();
+            var entry = payload.getIndexEntry();
+            var indexed = entry == null ? null : entry.getAssets().get(name);
+            if (indexed != null) {
+                load(indexed);
+            } else {
+                load();
+                if (entry != null) {
+                    context.getIndex().put(entry, name, toIndexEntry());
+                }
+            }
         } finally {
             loading = false;
         }
         loaded = true;
+        return true;
     }
 
-    public void load() {
-        payload.setBigEndian(true);
-        payload.seek(offset);
+    public void retire() {
+        retired = true;
+    }
+
+    public synchronized boolean unload() {  // Whether it was loaded; it loads again on demand
+        if (!loaded || loading || isResource()) return false;
+        adds = new ArrayList<>();
+        refs = new ArrayList<>();
+        refs.add(this);
+        types = new HashMap<>();
+        objects = new LinkedHashMap<>();
+        unityTypes.reset();
+        typesMapped = false;
+        loaded = false;
+        return true;
+    }
 
-        metadataLength = payload.readInt();
-        contentLength = payload.readInt();
-        formatVersion = payload.readInt();
-        contentOffset = payload.readInt();
+    public void load() {
+        try (var in = payload.cursor()) {
+            in.setBigEndian(true);
+            in.seek(offset);
 
-        payload.setBigEndian(formatVersion <= 9 || payload.readInt() != 0);
+            metadataLength = in.readInt();
+            contentLength = in.readInt();
+            formatVersion = in.readInt();
+            contentOffset = in.readInt();
 
-        unityTypes.load();
+            bigEndian = formatVersion <= 9 || in.readInt() != 0;
+            in.setBigEndian(bigEndian);
 
-        if (formatVersion >= 7 && formatVersion <= 13) {
-            longObjectId = payload.readInt() != 0;
-        }
+            unityTypes.load(in);
 
-        var objectCount = payload.readInt();
-        for (int i = 0; i < objectCount; i++) {
-            if (formatVersion >= 14) {
-                payload.align();
+            if (formatVersion >= 7 && formatVersion <= 13) {
+                longObjectId = in.readInt() != 0;
             }
-            register(new ObjectInfo(this));
-        }
 
-        if (formatVersion >= 11) {
-            var addCount = payload.readInt();
-            adds.ensureCapacity(addCount);
-            for (int i = 0; i < addCount; i++) {
+            var objectCount = in.readInt();
+            for (int i = 0; i < objectCount; i++) {
                 if (formatVersion >= 14) {
-                    payload.align();
+                    in.align();
                 }
-                var add = new LongIntPair(
-                    readId(), payload.readInt()
-                );
-                adds.add(add);
+                register(new ObjectInfo(this, in));
             }
-        }
 
-        if (formatVersion >= 6) {
-            var refCount = payload.readInt();
-            refs.ensureCapacity(refCount);
-            for (int i = 0; i < refCount; i++) {
-                refs.add(new AssetReference(this));
+            if (formatVersion >= 11) {
+                var addCount = in.readInt();
+                adds.ensureCapacity(addCount);
+                for (int i = 0; i < addCount; i++) {
+                    if (formatVersion >= 14) {
+                        in.align();
+                    }
+                    var add = new LongIntPair(
+                        readId(in), in.readInt()
+                    );
+                    adds.add(add);
+                }
             }
+
+            if (formatVersion >= 6) {
+                var refCount = in.readInt();
+                refs.ensureCapacity(refCount);
+                for (int i = 0; i < refCount; i++) {
+                    refs.add(new AssetReference(this, in));
+                }
+            }
+
+            if (!in.readString().isEmpty()) {  // DK
+                throw new DataFormatException();
+            }
+        }
+    }
+
+    protected void load(AssetEntry entry) {  // Restores what load() would read, without touching the payload
+        metadataLength = entry.metadataLength();
+        contentLength = entry.contentLength();
+        formatVersion = entry.formatVersion();
+        contentOffset = entry.contentOffset();
+        bigEndian = entry.bigEndian();
+        longObjectId = entry.longObjectId();
+
+        unityTypes.defer(entry.typesOffset());
+        for (var object : entry.objects()) {
+            register(new ObjectInfo(this, object));
         }
+        adds.addAll(entry.adds());
+        for (var ref : entry.refs()) {
+            refs.add(new AssetReference(this, ref));
+        }
+    }
 
-        if (!payload.readString().isEmpty()) {  // DK
-            throw new DataFormatException();
+    protected AssetEntry toIndexEntry() {
+        var objectEntries = new ArrayList<ObjectEntry>(objects.size());
+        for (var object : objects.values()) {
+            objectEntries.add(new ObjectEntry(
+                object.getPathId(), object.getOffset(), object.getLength(),
+                object.getTypeId(), object.getClassId(), object.isDestroyed()
+            ));
         }
+        var refEntries = new ArrayList<ReferenceEntry>(refs.size() - 1);
+        for (var ref : refs.subList(1, refs.size())) {  // The first is the asset itself
+            var reference = (AssetReference) ref;
+            refEntries.add(new ReferenceEntry(
+                reference.getAssetPath(), reference.getUuid(), reference.getType(), reference.getFilePath()
+            ));
+        }
+        return new AssetEntry(
+            metadataLength, contentLength, formatVersion, contentOffset, bigEndian, longObjectId,
+            unityTypes.getOffset(), objectEntries, List.copyOf(adds), refEntries
+        );
+    }
+
+    public RandomAccess cursor() {  // Positioned nowhere, with the endianness of this asset
+        var cursor = payload.cursor();
+        cursor.setBigEndian(isBigEndian());
+        return cursor;
+    }
+
+    public UnityFsPayload.Cursor slice(long offset, long length) {  // From an offset within this asset
+        var cursor = payload.slice(this.offset + offset, length);
+        cursor.setBigEndian(isBigEndian());
+        return cursor;
     }
 
     protected void register(ObjectInfo object) {
+        if (objects.containsKey(object.getPathId())) {
+            throw new ObjectRegistryException("Duplicate of object: " + object);
+        }
+        objects.put(object.getPathId(), object);
+    }
+
+    protected void mapType(ObjectInfo object) {
         if (unityTypes.getTypes().containsKey(object.getTypeId())) {
             types.computeIfAbsent(object.getTypeId(), unityTypes.getTypes()::get);
         } else {
@@ -185,30 +303,17 @@ public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
                 UnityTypes.getInstance().getTypes().get(object.getClassId())
             );
         }
-        if (objects.containsKey(object.getPathId())) {
-            throw new ObjectRegistryException("Duplicate of object: " + object);
-        }
-        objects.put(object.getPathId(), object);
-    }
-
-    protected long readId() {
-        return readId(payload);
     }
 
     protected long readId(RandomAccess buf) {
         return formatVersion >= 14 ? buf.readLong() : buf.readInt();
     }
 
-    @SneakyThrows
     protected Asset resolveAsset(String path) {
         if (context == null) {
             throw new UnresolvedAssetException(path);
         }
-        var uri = new URI(path);
-        if (path.contains(":")) {
-            return context.getAssetByUri(uri);
-        }
-        return context.getAssetByName(path);
+        return context.resolveAsset(path);
     }
 
     @Override
@@ -218,7 +323,6 @@ public class Asset implements AssetResolvable, Iterable<ObjectInfo> {
 
     @Override
     public Iterator<ObjectInfo> iterator() {
-        ensureLoaded();
-        return objects.values().iterator();
+        return whenLoaded(() -> objects.values().iterator());
     }
 }
@@ -1,7 +1,9 @@
 package top.frankyang.unityfs4j.asset;
 
 import lombok.Getter;
-
+import top.frankyang.unityfs4j.index.AssetEntry.ReferenceEntry;
+import top.frankyang.unityfs4j.io.RandomAccess;
+import top.frankyang.unityfs4j.util.StringTable;
 
 import java.util.UUID;
 
@@ -19,22 +21,29 @@ public class AssetReference implements AssetResolvable {
 
     protected Asset referent;  // Cached
 
-    public AssetReference(Asset asset) {
+    public AssetReference(Asset asset, RandomAccess in) {
+        this.asset = asset;
+        load(in);
+    }
+
+    protected AssetReference(Asset asset, ReferenceEntry entry) {
         this.asset = asset;
-        load();
+        assetPath = entry.assetPath();
+        uuid = entry.uuid();
+        type = entry.type();
+        filePath = entry.filePath();
     }
 
-    protected void load() {
-        var payload = asset.getPayload();
-        assetPath = payload.readString();
-        uuid = payload.readUuid();
-        type = payload.readInt();
-        filePath = payload.readString();
+    protected void load(RandomAccess in) {
+        assetPath = in.readString(StringTable.getShared());
+        uuid = in.readUuid();
+        type = in.readInt();
+        filePath = in.readString(StringTable.getShared());
     }
 
     @Override
     public Asset getReferent() {
-        if (referent == null) {
+        if (referent == null || referent.isRetired()) {  // Or replaced by a refresh of its context
             referent = asset.resolveAsset(filePath);
         }
         return referent;
@@ -3,17 +3,11 @@ package top.frankyang.unityfs4j.asset;
 import lombok.Getter;
 import top.frankyang.unityfs4j.engine.UnityClassManager;
 import top.frankyang.unityfs4j.engine.UnityObject;
-import top.frankyang.unityfs4j.exception.ObjectFormatException;
-import top.frankyang.unityfs4j.impl.StreamData;
+import top.frankyang.unityfs4j.index.AssetEntry.ObjectEntry;
 import top.frankyang.unityfs4j.io.RandomAccess;
-import top.frankyang.unityfs4j.util.BufferUtils;
-import top.frankyang.unityfs4j.util.StringUtils;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 @Getter
 public class ObjectInfo {
     private final Asset asset;
@@ -36,35 +30,46 @@ public class ObjectInfo {
 
     protected Object object;  // Cached
 
-    protected ObjectInfo(Asset asset) {
+    protected ObjectInfo(Asset asset, RandomAccess in) {
+        this.asset = asset;
+        payload = asset.getPayload();
+        load(in);
+    }
+
+    protected ObjectInfo(Asset asset, ObjectEntry entry) {
         this.asset = asset;
         payload = asset.getPayload();
-        load();
+        pathId = entry.pathId();
+        offset = entry.offset();
+        length = entry.length();
+        typeId = entry.typeId();
+        classId = entry.classId();
+        destroyed = entry.destroyed();
     }
 
     protected UnityObject createObject(UnityType unityType, Map<String, Object> fields) {
         return UnityClassManager.getInstance().createObject(this, unityType, fields);
     }
 
-    protected void load() {
+    protected void load(RandomAccess in) {
         var formatVersion = asset.getFormatVersion();
-        pathId = readId();
-        offset = payload.readInt() + asset.getContentOffset();
-        length = payload.readInt();
-        typeId = payload.readInt();
+        pathId = readId(in);
+        offset = in.readInt() + asset.getContentOffset();
+        length = in.readInt();
+        typeId = in.readInt();
         if (formatVersion < 17) {
-            classId = payload.readShort();
+            classId = in.readShort();
         } else {
             typeId = classId = asset.getUnityTypes().getClassIds().get(typeId);
         }
         if (formatVersion <= 10) {
-            destroyed = payload.readShort() != 0;
+            destroyed = in.readShort() != 0;
         }
         if (formatVersion >= 11 && formatVersion <= 16) {
-            payload.readShort();  // DK
+            in.readShort();  // DK
         }
         if (formatVersion >= 15 && formatVersion <= 16) {
-            payload.readByte();  // DK
+            in.readByte();  // DK
         }
     }
 
@@ -97,111 +102,17 @@ public class ObjectInfo {
     }
 
     protected Object readObject() {
-        payload.seek(asset.getOffset() + offset);
-        return read(getType(), payload);
-    }
-
-    protected Object read(UnityType unityType, RandomAccess buf) {
-        Object result;
-        var align = false;
-        var expected = unityType.getSize();
-        var ptrBefore = buf.tell();
-
-        var firstChild =
-            unityType.getChildren().size() > 0 ? unityType.getChildren().get(0) : UnityType.DUMMY;
-        var type = unityType.getType();
-        if (type.isEmpty()) {  // TODO figure out why empty types exist
-            type = "SInt32";
-        }
-        // Read primitive
-        result = switch (type) {
-            case "bool" -> buf.readBoolean();
-            case "SInt8" -> buf.readByte();
-            case "UInt8", "char" -> buf.readUnsignedByte();
-            case "SInt16", "short" -> buf.readShort();
-            case "UInt16", "unsigned short" -> buf.readUnsignedShort();
-            case "SInt32", "int" -> buf.readInt();
-            case "UInt32", "unsigned int" -> buf.readUnsignedInt();
-            case "SInt64", "long" -> buf.readLong();
-            case "UInt64", "unsigned long" -> buf.readUnsignedLong();
-            case "float" -> buf.align().readFloat();
-            case "double" -> buf.align().readDouble();
-            case "string" -> {
-                var size = unityType.getSize();
-                align = firstChild.isAligned();
-                yield StringUtils.bytesOrString(BufferUtils.read(buf, size < 0 ? buf.readInt() : size), UTF_8);
-            }
-            default -> null;
-        };
-        if (result == null) {  // Non-primitive
-            if (isArray(unityType)) {  // Array type
-                firstChild = unityType;
-            }
-            if (isArray(firstChild)) {  // Read array
-                align = firstChild.isAligned();
-                result = readArray(buf.readInt(), firstChild.getChildren().get(1), buf);
-            } else {  // Read normal object
-                var exposed = type.startsWith("Exposed");
-                var raw = new LinkedHashMap<String, Object>();
-                for (UnityType child : unityType.getChildren()) {
-                    raw.put(child.getName(), exposed ?
-                        readExposed(child, buf) : read(child, buf)
-                    );
-                }
-                result = createObject(unityType, raw);
-                if (result instanceof StreamData sd) {
-                    sd.setAsset(getAsset().resolveAsset(sd.getPath()));
-                }
-            }
-        }
-
-        var ptrAfter = buf.tell();
-        var actualSize = ptrAfter - ptrBefore;
-        if (expected > 0 && actualSize < expected) {
-            throw new ObjectFormatException(expected + " byte(s) expected, got " + actualSize);
+        try (var in = asset.slice(offset, length)) {  // Bounded, so a broken type tree cannot read on
+            return ObjectReaders.of(getType()).read(this, in);
         }
-        if (align || unityType.isAligned()) {
-            buf.align();
-        }
-        return result;
     }
 
-    protected Object readExposed(UnityType unityType, RandomAccess buf) {
-        if ("exposedName".equals(unityType.getName())) {
-            buf.readInt();
-            return "";
-        }
-        return read(unityType, buf);
-    }
-
-    protected Object readArray(int size, UnityType elemType, RandomAccess buf) {
-        return switch (elemType.getType()) {
-            case "bool" -> BufferUtils.readBooleans(buf, size);
-            case "char", "SInt8", "UInt8" -> BufferUtils.read(buf, size);
-            case "SInt16", "short" -> BufferUtils.readShorts(buf, size);
-            case "UInt16", "unsigned short" -> BufferUtils.readUnsignedShorts(buf, size);
-            case "SInt32", "int" -> BufferUtils.readInts(buf, size);
-            case "UInt32", "unsigned int" -> BufferUtils.readUnsignedInts(buf, size);
-            case "SInt64", "long" -> BufferUtils.readLongs(buf, size);
-            case "UInt64", "unsigned long" -> BufferUtils.readUnsignedLongs(buf, size);
-            case "float" -> BufferUtils.readFloats(buf.align(), size);
-            case "double" -> BufferUtils.readDoubles(buf.align(), size);
-            default -> {
-                Object[] array = new Object[size];
-                for (int i = 0; i < size; i++) {
-                    array[i] = read(elemType, buf);
-                }
-                yield array;
-            }
-        };
-    }
-
-    private long readId() {
-        return asset.isLongObjectId() ? payload.readLong() : asset.readId();
+    protected Object read(UnityType unityType, RandomAccess buf) {
+        return ReadPlan.of(unityType).read(this, buf);
     }
 
-    private boolean isArray(UnityType type) {
-        return type != null && type.isArray();
+    private long readId(RandomAccess in) {
+        return asset.isLongObjectId() ? in.readLong() : asset.readId(in);
     }
 
     @Override
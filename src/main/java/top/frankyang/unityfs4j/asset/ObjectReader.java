@@ -0,0 +1,8 @@
+package top.frankyang.unityfs4j.asset;
+
+import top.frankyang.unityfs4j.io.RandomAccess;
+
+@FunctionalInterface
+public interface ObjectReader {
+    Object read(ObjectInfo info, RandomAccess in);  // The object at the position of in, as its type tree describes it
+}
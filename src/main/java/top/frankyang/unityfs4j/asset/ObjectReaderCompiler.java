@@ -0,0 +1,208 @@
+package top.frankyang.unityfs4j.asset;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Map.entry;
+import static top.frankyang.unityfs4j.asset.ReadPlan.arrayOf;
+import static top.frankyang.unityfs4j.asset.ReadPlan.firstChild;
+import static top.frankyang.unityfs4j.asset.ReadPlan.isExposedName;
+import static top.frankyang.unityfs4j.asset.ReadPlan.minSize;
+import static top.frankyang.unityfs4j.asset.ReadPlan.typeOf;
+
+/*
+ * Turns a type tree into a class that reads its objects in straight-line code. What a ReadPlan still decides
+ * at every node of every object, which primitive to read, where to align and whether to check the size, is
+ * settled here once, and the JIT gets to see the whole of it. Each composite node gets a method of its own,
+ * so that none grows past what the JIT will compile. The classes are hidden ones defined next to ObjectInfo,
+ * whose protected members they call, and behave exactly like the plan, down to the objects they create.
+ */
+class ObjectReaderCompiler {
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private static final Map<String, String> PRIMITIVES = Map.ofEntries(  // Boxed, as the interpreter yields them
+        entry("bool", "Boolean.valueOf(in.readBoolean())"),
+        entry("SInt8", "Byte.valueOf(in.readByte())"),
+        entry("UInt8", "Integer.valueOf(in.readUnsignedByte())"),
+        entry("char", "Integer.valueOf(in.readUnsignedByte())"),
+        entry("SInt16", "Short.valueOf(in.readShort())"),
+        entry("short", "Short.valueOf(in.readShort())"),
+        entry("UInt16", "Integer.valueOf(in.readUnsignedShort())"),
+        entry("unsigned short", "Integer.valueOf(in.readUnsignedShort())"),
+        entry("SInt32", "Integer.valueOf(in.readInt())"),
+        entry("int", "Integer.valueOf(in.readInt())"),
+        entry("UInt32", "Long.valueOf(in.readUnsignedInt())"),
+        entry("unsigned int", "Long.valueOf(in.readUnsignedInt())"),
+        entry("SInt64", "Long.valueOf(in.readLong())"),
+        entry("long", "Long.valueOf(in.readLong())"),
+        entry("UInt64", "Long.valueOf(in.readUnsignedLong())"),
+        entry("unsigned long", "Long.valueOf(in.readUnsignedLong())"),
+        entry("float", "Float.valueOf(in.align().readFloat())"),
+        entry("double", "Double.valueOf(in.align().readDouble())")
+    );
+
+    private static final Map<String, String> ARRAYS = Map.ofEntries(  // By the raw type name, as readArray() matches
+        entry("bool", "BufferUtils.readBooleans(in, count)"),
+        entry("char", "BufferUtils.read(in, count)"),
+        entry("SInt8", "BufferUtils.read(in, count)"),
+        entry("UInt8", "BufferUtils.read(in, count)"),
+        entry("SInt16", "BufferUtils.readShorts(in, count)"),
+        entry("short", "BufferUtils.readShorts(in, count)"),
+        entry("UInt16", "BufferUtils.readUnsignedShorts(in, count)"),
+        entry("unsigned short", "BufferUtils.readUnsignedShorts(in, count)"),
+        entry("SInt32", "BufferUtils.readInts(in, count)"),
+        entry("int", "BufferUtils.readInts(in, count)"),
+        entry("UInt32", "BufferUtils.readUnsignedInts(in, count)"),
+        entry("unsigned int", "BufferUtils.readUnsignedInts(in, count)"),
+        entry("SInt64", "BufferUtils.readLongs(in, count)"),
+        entry("long", "BufferUtils.readLongs(in, count)"),
+        entry("UInt64", "BufferUtils.readUnsignedLongs(in, count)"),
+        entry("unsigned long", "BufferUtils.readUnsignedLongs(in, count)"),
+        entry("float", "BufferUtils.readFloats(in.align(), count)"),
+        entry("double", "BufferUtils.readDoubles(in.align(), count)")
+    );
+
+    private final ClassPool pool = new ClassPool(ClassPool.getDefault());
+
+    private final UnityType root;
+
+    private final List<UnityType> types = new ArrayList<>();  // types[i] in the generated code
+
+    private final List<String> names = new ArrayList<>();  // names[i] in the generated code
+
+    private final List<String> methods = new ArrayList<>();
+
+    private int locals;
+
+    ObjectReaderCompiler(UnityType root) {
+        this.root = root;
+        pool.appendClassPath(new ClassClassPath(ObjectInfo.class));
+        for (var pkg : List.of("java.nio.charset", "top.frankyang.unityfs4j.asset", "top.frankyang.unityfs4j.exception",
+            "top.frankyang.unityfs4j.impl", "top.frankyang.unityfs4j.io", "top.frankyang.unityfs4j.util")) {
+            pool.importPackage(pkg);
+        }
+    }
+
+    ObjectReader compile() throws Exception {
+        var body = new StringBuilder("public Object read(ObjectInfo info, RandomAccess in) {Object v = null;");
+        emit(root, "v", body);
+        body.append("return v;}");
+
+        var name = ObjectReader.class.getName() + "$$Compiled$$" + COUNTER.incrementAndGet();
+        var klass = pool.makeClass(name);
+        klass.addInterface(pool.get(ObjectReader.class.getName()));
+        klass.addField(CtField.make("private final UnityType[] types;", klass));
+        klass.addField(CtField.make("private final String[] names;", klass));
+        klass.addConstructor(CtNewConstructor.make(
+            "public " + klass.getSimpleName() + "(UnityType[] types, String[] names) {this.types = types; this.names = names;}",
+            klass
+        ));
+        for (int i = methods.size() - 1; i >= 0; i--) {  // Callees first, which always come after their callers
+            klass.addMethod(CtNewMethod.make(methods.get(i), klass));
+        }
+        klass.addMethod(CtNewMethod.make(body.toString(), klass));
+        try {  // Hidden, so that it goes away with the last reader rather than the class loader
+            return (ObjectReader) MethodHandles.privateLookupIn(ObjectInfo.class, MethodHandles.lookup())
+                .defineHiddenClass(klass.toBytecode(), true)
+                .lookupClass()
+                .getConstructor(UnityType[].class, String[].class)
+                .newInstance(types.toArray(UnityType[]::new), names.toArray(String[]::new));
+        } finally {
+            klass.detach();
+        }
+    }
+
+    private void emit(UnityType node, String target, StringBuilder out) {  // Leaves the value of node in target
+        var type = typeOf(node);
+        var read = PRIMITIVES.get(type);
+        if (read == null && !type.equals("string")) {  // Composite
+            out.append(target).append(" = r").append(method(node)).append("(info, in);");
+            return;
+        }
+        var expected = node.getSize();
+        var check = expected > minSize(node);
+        var tell = "p" + locals++;
+        if (check) {
+            out.append("long ").append(tell).append(" = in.tell();");
+        }
+        if (read != null) {
+            out.append(target).append(" = ").append(read).append(';');
+        } else {
+            out.append(target).append(" = StringUtils.bytesOrString(BufferUtils.read(in, ")
+                .append(expected < 0 ? "in.readInt()" : String.valueOf(expected))
+                .append("), StandardCharsets.UTF_8);");
+        }
+        if (check) {
+            checkSize(tell, expected, out);
+        }
+        if (node.isAligned() || type.equals("string") && firstChild(node).isAligned()) {
+            out.append("in.align();");
+        }
+    }
+
+    private int method(UnityType node) {  // Index of the method reading node, which is added here
+        var index = methods.size();
+        methods.add(null);  // Taken before the children add theirs
+        var out = new StringBuilder("private Object r").append(index).append("(ObjectInfo info, RandomAccess in) {");
+        out.append("Object v = null; Object c = null; long p = in.tell();");
+
+        var arrayNode = arrayOf(node);
+        if (arrayNode != null) {
+            if (arrayNode.getChildren().size() < 2) {
+                throw new IllegalArgumentException("array without elements: " + node);
+            }
+            var elem = arrayNode.getChildren().get(1);
+            out.append("int count = in.readInt();");
+            var bulk = ARRAYS.get(elem.getType());
+            if (bulk != null) {
+                out.append("v = ").append(bulk).append(';');
+            } else {
+                out.append("Object[] a = new Object[count]; for (int i = 0; i < count; i++) {");
+                emit(elem, "c", out);
+                out.append("a[i] = c;} v = a;");
+            }
+        } else {
+            var exposed = typeOf(node).startsWith("Exposed");
+            out.append("java.util.LinkedHashMap m = new java.util.LinkedHashMap();");
+            for (var child : node.getChildren()) {
+                var name = "names[" + names.size() + ']';
+                names.add(child.getName());
+                if (exposed && isExposedName(child)) {
+                    out.append("in.readInt(); m.put(").append(name).append(", \"\");");
+                } else {
+                    emit(child, "c", out);
+                    out.append("m.put(").append(name).append(", c);");
+                }
+            }
+            out.append("v = info.createObject(types[").append(types.size()).append("], m);");
+            types.add(node);
+            out.append("if (v instanceof StreamData) {StreamData sd = (StreamData) v;")
+                .append("sd.setAsset(info.getAsset().resolveAsset(sd.getPath()));}");
+        }
+
+        var expected = node.getSize();
+        if (expected > minSize(node)) {
+            checkSize("p", expected, out);
+        }
+        if (node.isAligned() || arrayNode != null && arrayNode.isAligned()) {
+            out.append("in.align();");
+        }
+        methods.set(index, out.append("return v;}").toString());
+        return index;
+    }
+
+    private static void checkSize(String tell, int expected, StringBuilder out) {
+        out.append("if (in.tell() - ").append(tell).append(" < ").append(expected).append("L) {")
+            .append("throw new ObjectFormatException(").append(expected)
+            .append(" + \" byte(s) expected, got \" + (in.tell() - ").append(tell).append("));}");
+    }
+}
@@ -0,0 +1,39 @@
+package top.frankyang.unityfs4j.asset;
+
+import lombok.experimental.UtilityClass;
+
+/*
+ * Which reader an object is read with. A type tree is read through its plan until it has been read often
+ * enough to be worth the few milliseconds compiling it takes, and compiled readers are then kept on the tree
+ * itself, which is shared across assets by the context.
+ */
+@UtilityClass
+public class ObjectReaders {
+    private final int COMPILE_THRESHOLD = Integer.getInteger("unityfs4j.compileThreshold", 16);  // Negative for never
+
+    public ObjectReader of(UnityType type) {
+        var reader = type.reader;
+        if (reader != null) return reader;
+        if (COMPILE_THRESHOLD < 0 || type.reads++ < COMPILE_THRESHOLD) {  // Racy, but a few reads more do no harm
+            return interpreter(type);
+        }
+        synchronized (type) {
+            if (type.reader == null) {
+                type.reader = compile(type);
+            }
+            return type.reader;
+        }
+    }
+
+    public ObjectReader interpreter(UnityType type) {
+        return ReadPlan.of(type);
+    }
+
+    public ObjectReader compile(UnityType type) {  // Anything the compiler cannot handle is left to the interpreter
+        try {
+            return new ObjectReaderCompiler(type).compile();
+        } catch (Exception e) {
+            return interpreter(type);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package top.frankyang.unityfs4j.asset;
+
+import top.frankyang.unityfs4j.exception.ObjectFormatException;
+import top.frankyang.unityfs4j.impl.StreamData;
+import top.frankyang.unityfs4j.io.RandomAccess;
+import top.frankyang.unityfs4j.util.BufferUtils;
+import top.frankyang.unityfs4j.util.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Map.entry;
+
+/*
+ * A type tree lowered once into a flat program. Every node starts with four words: its opcode and flags, the
+ * size it is expected to take, the slot of its name and where the next node starts. Composite nodes are
+ * followed by their children, and runs of fixed-size primitives among the children of an object by the layout
+ * of the run, which is then read in one block. Everything the tree walk used to look up by name at every node
+ * of every object is resolved here, and a size is only checked where it can come up short.
+ */
+public final class ReadPlan implements ObjectReader {
+    static final int BOOL = 0, S8 = 1, U8 = 2, S16 = 3, U16 = 4, S32 = 5, U32 = 6, S64 = 7, U64 = 8, F32 = 9, F64 = 10;
+
+    static final int STRING = 11, BULK = 12, ARRAY = 13, OBJECT = 14, EXPOSED_NAME = 15, RUN = 16, INVALID = 17;
+
+    private static final int OP = 0xff, KIND_SHIFT = 8, KIND = 0xff << KIND_SHIFT;
+
+    private static final int ALIGN = 1 << 16, CHECK = 1 << 17, ALIGN_FIRST = 1 << 18;
+
+    private static final int HEADER = 4;  // op | flags, expected size, name slot, next node
+
+    private static final int[] SIZES = {1, 1, 1, 2, 2, 4, 4, 8, 8, 4, 8};  // Of the primitives, by opcode
+
+    private static final Map<String, Integer> PRIMITIVES = Map.ofEntries(
+        entry("bool", BOOL), entry("SInt8", S8), entry("UInt8", U8), entry("char", U8),
+        entry("SInt16", S16), entry("short", S16), entry("UInt16", U16), entry("unsigned short", U16),
+        entry("SInt32", S32), entry("int", S32), entry("UInt32", U32), entry("unsigned int", U32),
+        entry("SInt64", S64), entry("long", S64), entry("UInt64", U64), entry("unsigned long", U64),
+        entry("float", F32), entry("double", F64)
+    );
+
+    private static final Map<String, Integer> BULKS = Map.ofEntries(  // By the raw type name of the elements
+        entry("bool", BOOL), entry("char", S8), entry("SInt8", S8), entry("UInt8", S8),
+        entry("SInt16", S16), entry("short", S16), entry("UInt16", U16), entry("unsigned short", U16),
+        entry("SInt32", S32), entry("int", S32), entry("UInt32", U32), entry("unsigned int", U32),
+        entry("SInt64", S64), entry("long", S64), entry("UInt64", U64), entry("unsigned long", U64),
+        entry("float", F32), entry("double", F64)
+    );
+
+    private final int[] code;
+
+    private final String[] names;
+
+    private final UnityType[] types;
+
+    private ReadPlan(UnityType root) {
+        var lowering = new Lowering();
+        lowering.node(root);
+        code = lowering.code.stream().mapToInt(Integer::intValue).toArray();
+        names = lowering.names.toArray(String[]::new);
+        types = lowering.types.toArray(UnityType[]::new);
+    }
+
+    public static ReadPlan of(UnityType type) {  // Kept on the tree, which never changes once loaded
+        var plan = type.plan;
+        if (plan == null) {
+            type.plan = plan = new ReadPlan(type);
+        }
+        return plan;
+    }
+
+    public int size() {  // In words
+        return code.length;
+    }
+
+    @Override
+    public Object read(ObjectInfo info, RandomAccess in) {
+        return execute(info, in, 0);
+    }
+
+    private Object execute(ObjectInfo info, RandomAccess in, int pc) {
+        var op = code[pc];
+        var start = (op & CHECK) != 0 ? in.tell() : 0;
+        Object result;
+        switch (op & OP) {
+            case STRING -> {
+                var size = code[pc + 1];
+                result = StringUtils.bytesOrString(BufferUtils.read(in, size < 0 ? in.readInt() : size), UTF_8);
+            }
+            case BULK -> result = readBulk((op & KIND) >>> KIND_SHIFT, in, in.readInt());
+            case ARRAY -> {
+                var array = new Object[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = execute(info, in, pc + HEADER);
+                }
+                result = array;
+            }
+            case OBJECT -> result = readObject(info, in, pc);
+            case INVALID -> throw new ObjectFormatException("array without elements");
+            default -> result = readPrimitive(op & OP, in);
+        }
+        if ((op & CHECK) != 0) {
+            checkSize(code[pc + 1], in.tell() - start);
+        }
+        if ((op & ALIGN) != 0) {
+            in.align();
+        }
+        return result;
+    }
+
+    private Object readObject(ObjectInfo info, RandomAccess in, int pc) {
+        var fields = new LinkedHashMap<String, Object>(code[pc + HEADER + 1] * 4 / 3 + 1);
+        for (int child = pc + HEADER + 2, end = code[pc + 3]; child < end; child = code[child + 3]) {
+            var op = code[child];
+            switch (op & OP) {
+                case EXPOSED_NAME -> {
+                    in.readInt();
+                    fields.put(names[code[child + 2]], "");
+                }
+                case RUN -> readRun(in, child, fields);
+                default -> fields.put(names[code[child + 2]], execute(info, in, child));
+            }
+        }
+        var result = info.createObject(types[code[pc + HEADER]], fields);
+        if (result instanceof StreamData sd) {
+            sd.setAsset(info.getAsset().resolveAsset(sd.getPath()));
+        }
+        return result;
+    }
+
+    private void readRun(RandomAccess in, int pc, Map<String, Object> fields) {  // Fields laid out back to back
+        var op = code[pc];
+        if ((op & ALIGN_FIRST) != 0) {
+            in.align();
+        }
+        var block = readBlock(in, code[pc + 1]);
+        for (int i = pc + HEADER, end = code[pc + 3]; i < end; i += 3) {
+            fields.put(names[code[i]], getPrimitive(code[i + 1], block, code[i + 2]));
+        }
+        if ((op & ALIGN) != 0) {
+            in.align();
+        }
+    }
+
+    private static ByteBuffer readBlock(RandomAccess in, int length) {  // A copy, as views of the stream may be recycled
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(in.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Object readPrimitive(int op, RandomAccess in) {  // Boxed, as objects hold them
+        return switch (op) {
+            case BOOL -> in.readBoolean();
+            case S8 -> in.readByte();
+            case U8 -> in.readUnsignedByte();
+            case S16 -> in.readShort();
+            case U16 -> in.readUnsignedShort();
+            case S32 -> in.readInt();
+            case U32 -> in.readUnsignedInt();
+            case S64 -> in.readLong();
+            case U64 -> in.readUnsignedLong();
+            case F32 -> in.align().readFloat();
+            case F64 -> in.align().readDouble();
+            default -> throw new IllegalStateException("not a primitive: " + op);
+        };
+    }
+
+    private static Object getPrimitive(int op, ByteBuffer block, int offset) {
+        return switch (op) {
+            case BOOL -> block.get(offset) != 0;
+            case S8 -> block.get(offset);
+            case U8 -> block.get(offset) & 0xff;
+            case S16 -> block.getShort(offset);
+            case U16 -> block.getShort(offset) & 0xffff;
+            case S32 -> block.getInt(offset);
+            case U32 -> Integer.toUnsignedLong(block.getInt(offset));
+            case S64, U64 -> block.getLong(offset);
+            case F32 -> block.getFloat(offset);
+            case F64 -> block.getDouble(offset);
+            default -> throw new IllegalStateException("not a primitive: " + op);
+        };
+    }
+
+    private static Object readBulk(int kind, RandomAccess in, int count) {
+        return switch (kind) {
+            case BOOL -> BufferUtils.readBooleans(in, count);
+            case S8 -> BufferUtils.read(in, count);
+            case S16 -> BufferUtils.readShorts(in, count);
+            case U16 -> BufferUtils.readUnsignedShorts(in, count);
+            case S32 -> BufferUtils.readInts(in, count);
+            case U32 -> BufferUtils.readUnsignedInts(in, count);
+            case S64 -> BufferUtils.readLongs(in, count);
+            case U64 -> BufferUtils.readUnsignedLongs(in, count);
+            case F32 -> BufferUtils.readFloats(in.align(), count);
+            case F64 -> BufferUtils.readDoubles(in.align(), count);
+            default -> throw new IllegalStateException("not a primitive: " + kind);
+        };
+    }
+
+    private static void checkSize(int expected, long actual) {
+        if (actual < expected) {
+            throw new ObjectFormatException(expected + " byte(s) expected, got " + actual);
+        }
+    }
+
+    static long minSize(UnityType node) {  // Fewest bytes node can take, so a check below it is never needed
+        var type = typeOf(node);
+        var op = PRIMITIVES.get(type);
+        if (op != null) return SIZES[op];
+        if (type.equals("string")) {
+            return node.getSize() < 0 ? 4 : node.getSize();
+        }
+        if (node.isArray() || firstChild(node).isArray()) return 4;
+        var exposed = type.startsWith("Exposed");
+        long sum = 0;
+        for (var child : node.getChildren()) {
+            sum += exposed && isExposedName(child) ? 4 : minSize(child);
+        }
+        return sum;
+    }
+
+    static String typeOf(UnityType node) {
+        var type = node.getType();
+        return type.isEmpty() ? "SInt32" : type;  // TODO figure out why empty types exist
+    }
+
+    static UnityType firstChild(UnityType node) {
+        return node.getChildren().isEmpty() ? UnityType.DUMMY : node.getChildren().get(0);
+    }
+
+    static UnityType arrayOf(UnityType node) {  // The node holding the size and elements, if node is an array
+        if (node.isArray()) return node;
+        var first = firstChild(node);
+        return first.isArray() ? first : null;
+    }
+
+    static boolean isExposedName(UnityType node) {  // Skipped over by exposed references
+        return "exposedName".equals(node.getName());
+    }
+
+    private static class Lowering {
+        final List<Integer> code = new ArrayList<>();
+
+        final List<String> names = new ArrayList<>();
+
+        final List<UnityType> types = new ArrayList<>();
+
+        int node(UnityType node) {  // Where it starts
+            var pc = header(node);
+            var type = typeOf(node);
+            var op = PRIMITIVES.get(type);
+            var flags = node.isAligned() ? ALIGN : 0;
+            if (op != null) {
+                finish(pc, op | flags, node);
+                return pc;
+            }
+            if (type.equals("string")) {
+                finish(pc, STRING | flags | (firstChild(node).isAligned() ? ALIGN : 0), node);
+                return pc;
+            }
+            var array = arrayOf(node);
+            if (array != null) {
+                flags |= array.isAligned() ? ALIGN : 0;
+                if (array.getChildren().size() < 2) {
+                    finish(pc, INVALID, null);
+                    return pc;
+                }
+                var elem = array.getChildren().get(1);
+                var kind = BULKS.get(elem.getType());
+                if (kind != null) {
+                    finish(pc, BULK | kind << KIND_SHIFT | flags, node);
+                } else {
+                    node(elem);
+                    finish(pc, ARRAY | flags, node);
+                }
+                return pc;
+            }
+            code.add(types.size());
+            types.add(node);
+            code.add(node.getChildren().size());
+            children(node.getChildren(), type.startsWith("Exposed"));
+            finish(pc, OBJECT | flags, node);
+            return pc;
+        }
+
+        void children(List<UnityType> children, boolean exposed) {
+            for (int i = 0; i < children.size(); ) {
+                var child = children.get(i);
+                if (exposed && isExposedName(child)) {
+                    finish(header(child), EXPOSED_NAME, null);
+                    i++;
+                    continue;
+                }
+                var run = run(children, i, exposed);
+                if (run > 1) {
+                    i += run;
+                    continue;
+                }
+                node(child);
+                i++;
+            }
+        }
+
+        int run(List<UnityType> children, int from, boolean exposed) {  // How many primitives it has laid out, if more than one
+            var pc = code.size();
+            int offset = 0, count = 0, flags = 0;
+            for (int i = from; i < children.size(); i++) {
+                var child = children.get(i);
+                var op = runnable(child, exposed);
+                if (op < 0) break;
+                if (op == F32 || op == F64) {  // Aligned before being read, which is only free at an aligned offset
+                    if (count == 0) {
+                        flags |= ALIGN_FIRST;
+                    } else if ((flags & ALIGN_FIRST) == 0 || offset % 4 != 0) {
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    header(null);
+                }
+                code.add(names.size());
+                names.add(child.getName());
+                code.add(op);
+                code.add(offset);
+                offset += SIZES[op];
+                count++;
+                if (child.isAligned()) {  // Ends the run, which then aligns after it
+                    flags |= ALIGN;
+                    break;
+                }
+            }
+            if (count < 2) {
+                while (code.size() > pc) {
+                    code.remove(code.size() - 1);
+                }
+                if (count == 1) {
+                    names.remove(names.size() - 1);
+                }
+                return count;
+            }
+            code.set(pc + 1, offset);
+            finish(pc, RUN | flags, null);
+            return count;
+        }
+
+        int runnable(UnityType node, boolean exposed) {  // Its opcode, if it can be read as part of a run
+            if (exposed && isExposedName(node)) return -1;
+            var op = PRIMITIVES.get(typeOf(node));
+            if (op == null || node.getSize() > SIZES[op]) return -1;  // Or else it is checked
+            return op;
+        }
+
+        int header(UnityType node) {
+            var pc = code.size();
+            code.add(0);
+            code.add(node != null ? node.getSize() : 0);
+            if (node != null) {
+                code.add(names.size());
+                names.add(node.getName());
+            } else {
+                code.add(-1);
+            }
+            code.add(0);
+            return pc;
+        }
+
+        void finish(int pc, int op, UnityType node) {  // Node is null for what reads no node of its own
+            if (node != null && node.getSize() > minSize(node)) {
+                op |= CHECK;
+            }
+            code.set(pc, op);
+            code.set(pc + 3, code.size());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package top.frankyang.unityfs4j.asset;
+
+import top.frankyang.unityfs4j.io.RandomAccess;
+import top.frankyang.unityfs4j.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+
+public record TypeHash(long high, long low) {  // 128 bits, as Unity stores them regardless of the asset endianness
+    public static final TypeHash ZERO = new TypeHash(0, 0);
+
+    public static TypeHash read(RandomAccess in) {
+        var buffer = ByteBuffer.wrap(BufferUtils.read(in, 16));
+        return new TypeHash(buffer.getLong(), buffer.getLong());
+    }
+
+    public boolean isZero() {  // Left out by the build, so it tells nothing apart
+        return high == 0 && low == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
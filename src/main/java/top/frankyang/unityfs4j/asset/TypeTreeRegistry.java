@@ -0,0 +1,33 @@
+package top.frankyang.unityfs4j.asset;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Type trees shared across the assets of a context. Bundles built by one player carry the very same trees
+ * over and over, so each is parsed once and then only skipped past. A tree is never changed once loaded, so
+ * one instance can serve any number of assets.
+ */
+public class TypeTreeRegistry {
+    private final Map<Key, UnityType> trees = new ConcurrentHashMap<>();
+
+    public UnityType get(int classId, TypeHash hash, int format) {  // Null if not yet known
+        return trees.get(new Key(classId, hash, format));
+    }
+
+    protected UnityType register(int classId, TypeHash hash, int format, UnityType tree) {  // The one to use
+        var existing = trees.putIfAbsent(new Key(classId, hash, format), tree);
+        return existing != null ? existing : tree;
+    }
+
+    public int size() {
+        return trees.size();
+    }
+
+    public void clear() {
+        trees.clear();
+    }
+
+    private record Key(int classId, TypeHash hash, int format) {
+    }
+}
@@ -1,12 +1,14 @@
 package top.frankyang.unityfs4j.asset;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.io.IOUtils;
 import top.frankyang.unityfs4j.exception.ObjectFormatException;
 import top.frankyang.unityfs4j.io.RandomAccess;
 import top.frankyang.unityfs4j.io.Whence;
 import top.frankyang.unityfs4j.util.BufferUtils;
-import top.frankyang.unityfs4j.util.StringUtils;
+import top.frankyang.unityfs4j.util.OffsetStringTable;
+import top.frankyang.unityfs4j.util.StringTable;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -14,18 +16,15 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-import static java.nio.charset.StandardCharsets.US_ASCII;
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 @Getter
 public class UnityType {
     public static final UnityType DUMMY = new UnityType(15);
 
-    private static final String STRINGS_DAT;
+    private static final OffsetStringTable COMMON_STRINGS;  // Referred to by negative offsets
 
     static {
         try {
-            STRINGS_DAT = IOUtils.resourceToString("/strings.dat", US_ASCII);
+            COMMON_STRINGS = new OffsetStringTable(IOUtils.resourceToByteArray("/strings.dat"), StringTable.getShared());
         } catch (IOException e) {
             throw new AssertionError(e);
         }
@@ -35,7 +34,7 @@ public class UnityType {
 
     private final int format;
 
-    protected String string;
+    protected OffsetStringTable strings;  // Of the tree, only set on its root
 
     protected short version;
 
@@ -51,10 +50,23 @@ public class UnityType {
 
     protected int flag;
 
+    @Getter(AccessLevel.NONE)
+    protected volatile ReadPlan plan;  // Lowered on first read
+
+    @Getter(AccessLevel.NONE)
+    protected volatile ObjectReader reader;  // Compiled, once read often enough; see ObjectReaders
+
+    @Getter(AccessLevel.NONE)
+    protected int reads;
+
     protected UnityType(int format) {
         this.format = format;
     }
 
+    public String getString() {  // The string buffer of the tree, only set on its root
+        return strings != null ? strings.toString() : null;
+    }
+
     public List<UnityType> getChildren() {
         return Collections.unmodifiableList(children);
     }
@@ -67,15 +79,26 @@ public class UnityType {
         throw new UnsupportedOperationException();  // TODO implement it
     }
 
+    protected static void skip(RandomAccess payload, int format) {  // Past a tree, just as load() would leave it
+        // Only ever for a tree already loaded in the same format, so one that load() took as a blob
+        var nodeCount = payload.readInt();
+        var stringSize = payload.readInt();
+        payload.seek((long) nodeCount * nodeSize(format) + stringSize, Whence.POINTER);
+    }
+
+    protected static int nodeSize(int format) {
+        return format >= 19 ? 32 : 24;
+    }
+
     protected void loadBlob(RandomAccess payload) {
         var nodeCount = payload.readInt();
         var stringSize = payload.readInt();
-        var nodeSize = format >= 19 ? 32 : 24;
+        var nodeSize = nodeSize(format);
         var dataSize = nodeCount * nodeSize;
         var bodySize = dataSize + stringSize;
         var oldPointer = payload.tell();
         payload.seek(dataSize, Whence.POINTER);
-        string = new String(BufferUtils.read(payload, stringSize), UTF_8);
+        strings = new OffsetStringTable(BufferUtils.read(payload, stringSize), StringTable.getShared());
         payload.seek(-bodySize, Whence.POINTER);
 
         var parents = new LinkedList<UnityType>();
@@ -117,16 +140,10 @@ public class UnityType {
     }
 
     protected String getString(int ptr, int size) {
-        String data;
         if (ptr < 0) {
-            ptr &= 0x7fffffff;
-            data = STRINGS_DAT;
-        } else if (ptr < size) {
-            data = this.string;
-        } else {
-            return null;
+            return COMMON_STRINGS.get(ptr & 0x7fffffff);
         }
-        return StringUtils.substrTo(data.substring(ptr), '\0');
+        return ptr < size ? strings.get(ptr) : null;
     }
 
     public boolean isAligned() {
@@ -5,24 +5,29 @@ import lombok.Getter;
 
 import org.apache.commons.io.IOUtils;
 import top.frankyang.unityfs4j.io.RandomAccess;
-import top.frankyang.unityfs4j.util.BufferUtils;
+import top.frankyang.unityfs4j.util.StringTable;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.util.*;
 
 @Getter
 public class UnityTypes {
-    protected final List<Integer> classIds = new ArrayList<>();
+    protected List<Integer> classIds = new ArrayList<>();  // All four swapped anew by reset()
 
-    protected final Map<Integer, BigInteger> hashes = new HashMap<>();
+    protected Map<Integer, TypeHash> hashes = new HashMap<>();  // Of the type trees
 
-    protected final Map<Integer, UnityType> types = new HashMap<>();
+    protected Map<Integer, TypeHash> scriptIds = new HashMap<>();  // Of the scripts, for the negative class IDs
+
+    protected Map<Integer, UnityType> types = new HashMap<>();
 
     private final Asset asset;
 
     protected String engineVersion;
 
+    protected long offset = -1;  // Of the type section in the payload
+
+    protected boolean deferred;
+
     protected UnityTypes(Asset asset) {
         this.asset = asset;
     }
@@ -31,24 +36,63 @@ public class UnityTypes {
         return Holder.INSTANCE;
     }
 
+    public String getEngineVersion() {
+        ensureLoaded();
+        return engineVersion;
+    }
+
     public List<Integer> getClassIds() {
+        ensureLoaded();
         return Collections.unmodifiableList(classIds);
     }
 
-    public Map<Integer, BigInteger> getHashes() {
+    public Map<Integer, TypeHash> getHashes() {
+        ensureLoaded();
         return Collections.unmodifiableMap(hashes);
     }
 
+    public Map<Integer, TypeHash> getScriptIds() {
+        ensureLoaded();
+        return Collections.unmodifiableMap(scriptIds);
+    }
+
     public Map<Integer, UnityType> getTypes() {
+        ensureLoaded();
         return Collections.unmodifiableMap(types);
     }
 
-    protected final void load() {
-        load(asset.getPayload(), asset.getFormatVersion());
+    protected synchronized void ensureLoaded() {
+        if (!deferred) return;
+        try (var in = asset.getPayload().cursor()) {  // Not asset.cursor(), which would lock the asset
+            in.setBigEndian(asset.bigEndian);
+            in.seek(offset);
+            load(in, asset.formatVersion);
+        }
+        deferred = false;
+    }
+
+    protected void defer(long offset) {  // Parsed from there on first use
+        this.offset = offset;
+        deferred = true;
+    }
+
+    protected synchronized void reset() {  // Back to before load(), for an asset being unloaded
+        classIds = new ArrayList<>();
+        hashes = new HashMap<>();
+        scriptIds = new HashMap<>();
+        types = new HashMap<>();
+        engineVersion = null;
+        offset = -1;
+        deferred = false;
+    }
+
+    protected final void load(RandomAccess payload) {
+        offset = payload.tell();
+        load(payload, asset.getFormatVersion());
     }
 
     protected void load(RandomAccess payload, int formatVersion) {
-        engineVersion = payload.readString();
+        engineVersion = payload.readString(StringTable.getShared());
         payload.readInt();  // Platform ID, unnecessary
 
         if (formatVersion >= 13) {
@@ -61,6 +105,8 @@ public class UnityTypes {
     protected void loadNew(RandomAccess payload, int formatVersion) {
         var hasTypeTrees = payload.readBoolean();
         var typeCount = payload.readInt();
+        var context = asset != null ? asset.getContext() : null;
+        var registry = context != null ? context.getTypeTrees() : null;
 
         for (int i = 0; i < typeCount; i++) {
             var classId = payload.readInt();
@@ -73,17 +119,25 @@ public class UnityTypes {
                 }
             }
             classIds.add(classId);
-            byte[] hash;
             if (classId < 0) {
-                hash = BufferUtils.read(payload, 32);
-            } else {
-                hash = BufferUtils.read(payload, 16);
+                scriptIds.put(classId, TypeHash.read(payload));
             }
-            hashes.put(classId, new BigInteger(hash));
+            var hash = TypeHash.read(payload);
+            hashes.put(classId, hash);
 
             if (hasTypeTrees) {
-                var tree = new UnityType(formatVersion);
-                tree.load(payload);
+                var sharedId = classId < 0 ? 114 : classId;  // Script indices only mean something within the asset
+                var shared = registry != null && !hash.isZero();
+                var tree = shared ? registry.get(sharedId, hash, formatVersion) : null;
+                if (tree != null) {
+                    UnityType.skip(payload, formatVersion);
+                } else {
+                    tree = new UnityType(formatVersion);
+                    tree.load(payload);
+                    if (shared) {
+                        tree = registry.register(sharedId, hash, formatVersion, tree);
+                    }
+                }
                 types.put(classId, tree);
             }
 
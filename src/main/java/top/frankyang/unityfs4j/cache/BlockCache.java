@@ -0,0 +1,23 @@
+package top.frankyang.unityfs4j.cache;
+
+import top.frankyang.unityfs4j.Compression;
+import top.frankyang.unityfs4j.UnityFsPayload;
+
+import java.util.function.Supplier;
+
+public interface BlockCache {
+    PooledBuffer get(BlockKey key, Compression compression, Supplier<PooledBuffer> loader);  // Retained for the caller
+
+    void invalidate(UnityFsPayload payload);
+
+    void clear();
+
+    Stats getStats();
+
+    record Stats(long hits, long misses, long evictions, long size, long budget) {
+        public double hitRate() {
+            var total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package top.frankyang.unityfs4j.cache;
+
+import top.frankyang.unityfs4j.UnityFsPayload;
+
+public record BlockKey(UnityFsPayload payload, int index) {
+}
@@ -0,0 +1,88 @@
+package top.frankyang.unityfs4j.cache;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Direct buffers in power of two size classes, so that block data stays off the heap and is reused instead
+ * of reallocated. Idle buffers are kept up to a limit; beyond it, and above the largest class, buffers are
+ * left to the garbage collector.
+ */
+public class BufferPool {
+    private static final int MIN_SHIFT = 12;  // 4 KiB
+
+    private static final int MAX_SHIFT = 24;  // 16 MiB
+
+    private final ArrayDeque<ByteBuffer>[] free;  // Each guarded by itself
+
+    private final AtomicLong idle = new AtomicLong();
+
+    @Getter
+    private final long maxIdle;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(long maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("negative idle limit: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+        free = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    public PooledBuffer allocate(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+        var shift = shiftOf(size);
+        if (shift > MAX_SHIFT) {
+            return new PooledBuffer(null, ByteBuffer.allocateDirect(size), size);
+        }
+        ByteBuffer slab;
+        var deque = free[shift - MIN_SHIFT];
+        synchronized (deque) {
+            slab = deque.pollFirst();
+        }
+        if (slab != null) {
+            idle.addAndGet(-slab.capacity());
+        } else {
+            slab = ByteBuffer.allocateDirect(1 << shift);
+        }
+        return new PooledBuffer(this, slab, size);
+    }
+
+    void recycle(ByteBuffer slab) {
+        var capacity = slab.capacity();
+        if (idle.addAndGet(capacity) > maxIdle) {  // Enough kept already
+            idle.addAndGet(-capacity);
+            return;
+        }
+        var deque = free[shiftOf(capacity) - MIN_SHIFT];
+        synchronized (deque) {
+            deque.addFirst(slab);  // Most recently used first, still warm
+        }
+    }
+
+    public long getIdle() {
+        return idle.get();
+    }
+
+    public void clear() {
+        for (var deque : free) {
+            synchronized (deque) {
+                while (!deque.isEmpty()) {
+                    idle.addAndGet(-deque.pollFirst().capacity());
+                }
+            }
+        }
+    }
+
+    private static int shiftOf(int size) {
+        return size <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
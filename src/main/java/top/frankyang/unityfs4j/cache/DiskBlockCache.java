@@ -0,0 +1,193 @@
+package top.frankyang.unityfs4j.cache;
+
+import lombok.Getter;
+import top.frankyang.unityfs4j.Compression;
+import top.frankyang.unityfs4j.UnityFsPayload;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ * A tier on disk below another cache, shared by every process pointed at the same directory. A block is
+ * stored once decompressed, under the UUID of its bundle, its index and a checksum of its compressed bytes,
+ * as bundle UUIDs are not always unique. Files are written aside and moved into place, so a reader either
+ * reads a whole block or finds none. Nothing is ever evicted from here but by prune(), which goes by the
+ * modification times of the files; hits are kept in memory and only set as those by prune() and clear().
+ */
+public class DiskBlockCache implements BlockCache {
+    private static final String SUFFIX = ".blk";
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final Map<Path, Long> lastUses = new ConcurrentHashMap<>();  // Hits not yet set as modification times
+
+    @Getter
+    private final Path directory;
+
+    @Getter
+    private final BlockCache memory;
+
+    private final int minCost;
+
+    public DiskBlockCache(Path directory, BlockCache memory) throws IOException {
+        this(directory, memory, Compression.LZMA.getCost());  // Faster codecs beat a read from disk
+    }
+
+    public DiskBlockCache(Path directory, BlockCache memory, int minCost) throws IOException {
+        this.directory = Files.createDirectories(directory.toAbsolutePath());
+        this.memory = memory;
+        this.minCost = minCost;
+    }
+
+    @Override
+    public PooledBuffer get(BlockKey key, Compression compression, Supplier<PooledBuffer> loader) {
+        if (compression.getCost() < minCost) {
+            return memory.get(key, compression, loader);
+        }
+        return memory.get(key, compression, () -> load(key, loader));
+    }
+
+    protected PooledBuffer load(BlockKey key, Supplier<PooledBuffer> loader) {
+        var file = fileOf(key);
+        var size = key.payload().getDataBlocks().get(key.index()).actualSize();
+        var data = read(file, size, key.payload().getContext().getBufferPool());
+        if (data != null) {
+            hits.increment();
+            return data;
+        }
+        misses.increment();
+        data = loader.get();
+        write(file, data);
+        return data;
+    }
+
+    protected Path fileOf(BlockKey key) {
+        var payload = key.payload();
+        var crc = new CRC32C();
+        crc.update(payload.getZippedBlock(key.index()));
+        var block = payload.getDataBlocks().get(key.index());
+        return directory.resolve(payload.getMetadata().uuid().toString()).resolve(
+            key.index() + "-" + block.actualSize() + "-" + Long.toHexString(crc.getValue()) + SUFFIX
+        );
+    }
+
+    protected PooledBuffer read(Path file, int size, BufferPool pool) {  // Null if absent or not what is expected
+        try (var channel = FileChannel.open(file)) {
+            if (channel.size() != size) return null;
+            var data = pool.allocate(size);
+            try {
+                var buffer = data.buffer();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) < 0) {
+                        throw new EOFException("block truncated at " + buffer.position());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                data.release();
+                throw e;
+            }
+            lastUses.put(file, System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {  // Mostly absent, but a broken store must not fail a read either
+            return null;
+        }
+    }
+
+    protected void write(Path file, PooledBuffer data) {  // Best effort, a block not stored is decompressed again
+        Path temp = null;
+        try {
+            var parent = Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (var channel = FileChannel.open(temp, WRITE)) {
+                var buffer = data.buffer();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public long prune(long budget) throws IOException {  // Removes the least recently used blocks, returns bytes left
+        flushUses();
+        var files = new ArrayList<StoredBlock>();
+        try (var walk = Files.walk(directory)) {
+            for (var itr = walk.iterator(); itr.hasNext(); ) {
+                var file = itr.next();
+                if (!file.getFileName().toString().endsWith(SUFFIX)) continue;
+                try {
+                    var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    files.add(new StoredBlock(file, attributes.size(), attributes.lastModifiedTime()));
+                } catch (NoSuchFileException ignored) {  // Pruned by another process
+                }
+            }
+        }
+        files.sort(Comparator.comparing(StoredBlock::lastUsed));
+        var size = files.stream().mapToLong(StoredBlock::size).sum();
+        for (int i = 0; i < files.size() && size > budget; i++) {
+            var file = files.get(i);
+            if (Files.deleteIfExists(file.path())) {
+                size -= file.size();
+            }
+        }
+        return size;
+    }
+
+    protected void flushUses() {  // For prune() here and in other processes to see
+        for (var use : lastUses.entrySet()) {
+            try {
+                Files.setLastModifiedTime(use.getKey(), FileTime.fromMillis(use.getValue()));
+            } catch (IOException ignored) {  // Pruned meanwhile
+            }
+            lastUses.remove(use.getKey(), use.getValue());  // Unless hit again since
+        }
+    }
+
+    @Override
+    public void invalidate(UnityFsPayload payload) {  // Blocks on disk outlive payloads
+        memory.invalidate(payload);
+    }
+
+    @Override
+    public void clear() {
+        memory.clear();
+        flushUses();
+    }
+
+    @Override
+    public Stats getStats() {
+        return memory.getStats();
+    }
+
+    public Stats getDiskStats() {
+        return new Stats(hits.sum(), misses.sum(), 0, 0, Long.MAX_VALUE);
+    }
+
+    private record StoredBlock(Path path, long size, FileTime lastUsed) {
+    }
+}
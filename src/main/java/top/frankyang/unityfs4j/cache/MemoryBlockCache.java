@@ -0,0 +1,183 @@
+package top.frankyang.unityfs4j.cache;
+
+import lombok.Getter;
+import top.frankyang.unityfs4j.Compression;
+import top.frankyang.unityfs4j.UnityFsPayload;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * GreedyDual eviction: every entry is ranked by the global clock at its last access plus the cost of its
+ * compression. The lowest ranked entry goes first and advances the clock, so cheap blocks age out before
+ * expensive ones, and expensive blocks still age out once they stop being used. The cache holds one
+ * reference to each buffer it keeps, and lets go of it on eviction.
+ */
+public class MemoryBlockCache implements BlockCache {
+    private final Map<BlockKey, Entry> entries = new HashMap<>();
+
+    private final TreeSet<Entry> queue = new TreeSet<>(
+        Comparator.comparingLong(Entry::getPriority).thenComparingLong(Entry::getSequence)
+    );
+
+    private final Map<BlockKey, CompletableFuture<PooledBuffer>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    @Getter
+    private final long budget;
+
+    private long size;
+
+    private long clock;
+
+    private long sequence;
+
+    public MemoryBlockCache(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("negative budget: " + budget);
+        }
+        this.budget = budget;
+    }
+
+    @Override
+    public PooledBuffer get(BlockKey key, Compression compression, Supplier<PooledBuffer> loader) {
+        while (true) {
+            var data = lookup(key);
+            if (data != null) {
+                hits.increment();
+                return data;
+            }
+            var future = new CompletableFuture<PooledBuffer>();
+            var existing = loading.putIfAbsent(key, future);
+            if (existing == null) {
+                return load(key, compression, loader, future);
+            }
+            try {  // Already being loaded by another thread
+                data = existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException r ? r : e;
+            }
+            if (data.tryRetain()) {  // Else released by all, not even cached
+                hits.increment();
+                return data;
+            }
+        }
+    }
+
+    private PooledBuffer load(
+        BlockKey key, Compression compression, Supplier<PooledBuffer> loader, CompletableFuture<PooledBuffer> future
+    ) {
+        PooledBuffer data;
+        try {
+            if ((data = lookup(key)) != null) {  // Loaded right before we got the slot
+                hits.increment();
+                future.complete(data);
+                return data;
+            }
+            misses.increment();
+            data = loader.get();
+            insert(key, compression, data);
+            future.complete(data);
+            return data;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            loading.remove(key);
+        }
+    }
+
+    protected synchronized PooledBuffer lookup(BlockKey key) {  // Retained, as eviction can't happen meanwhile
+        var entry = entries.get(key);
+        if (entry == null) return null;
+        queue.remove(entry);
+        entry.touch();
+        queue.add(entry);
+        return entry.data.retain();
+    }
+
+    protected synchronized void insert(BlockKey key, Compression compression, PooledBuffer data) {
+        if (data.size() > budget || entries.containsKey(key)) return;
+        while (size + data.size() > budget) {
+            var victim = queue.pollFirst();
+            assert victim != null;
+            clock = victim.priority;
+            remove(victim);
+            evictions.increment();
+        }
+        var entry = new Entry(key, compression.getCost(), data.retain());
+        entry.touch();
+        entries.put(key, entry);
+        queue.add(entry);
+        size += data.size();
+    }
+
+    @Override
+    public synchronized void invalidate(UnityFsPayload payload) {
+        var itr = queue.iterator();
+        while (itr.hasNext()) {
+            var entry = itr.next();
+            if (entry.key.payload() == payload) {
+                itr.remove();
+                remove(entry);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (var entry : entries.values()) {
+            entry.data.release();
+        }
+        entries.clear();
+        queue.clear();
+        size = 0;
+    }
+
+    @Override
+    public synchronized Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, budget);
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        entry.data.release();
+        size -= entry.data.size();
+    }
+
+    @Getter
+    private class Entry {
+        final BlockKey key;
+
+        final int cost;
+
+        final PooledBuffer data;
+
+        long priority;
+
+        long sequence;
+
+        Entry(BlockKey key, int cost, PooledBuffer data) {
+            this.key = key;
+            this.cost = cost;
+            this.data = data;
+        }
+
+        void touch() {
+            priority = clock + cost;
+            sequence = MemoryBlockCache.this.sequence++;
+        }
+    }
+}
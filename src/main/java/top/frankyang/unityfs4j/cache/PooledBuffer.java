@@ -0,0 +1,70 @@
+package top.frankyang.unityfs4j.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * A reference counted hold on a buffer of a BufferPool. It starts with one reference, owned by whoever
+ * allocated it, and goes back to the pool when the last reference is released. Buffers not from a pool,
+ * like views of a mapped file, are wrapped the same way and simply dropped.
+ */
+public final class PooledBuffer {
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    private final BufferPool pool;  // Null if not pooled
+
+    private final ByteBuffer slab;
+
+    private final int size;
+
+    PooledBuffer(BufferPool pool, ByteBuffer slab, int size) {
+        this.pool = pool;
+        this.slab = slab;
+        this.size = size;
+    }
+
+    public static PooledBuffer of(ByteBuffer buffer) {
+        return new PooledBuffer(null, buffer.slice(), buffer.remaining());
+    }
+
+    public ByteBuffer buffer() {  // Fresh view at position 0, only valid while a reference is held
+        if (refCount.get() <= 0) {
+            throw new IllegalStateException("already released");
+        }
+        return slab.slice(0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+
+    public PooledBuffer retain() {
+        if (!tryRetain()) {
+            throw new IllegalStateException("already released");
+        }
+        return this;
+    }
+
+    public boolean tryRetain() {  // Fails once the last reference is gone, as the buffer may be reused
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) return false;
+        } while (!refCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    public void release() {
+        var count = refCount.decrementAndGet();
+        if (count < 0) {
+            throw new IllegalStateException("released more than retained");
+        }
+        if (count == 0 && pool != null) {
+            pool.recycle(slab);
+        }
+    }
+}
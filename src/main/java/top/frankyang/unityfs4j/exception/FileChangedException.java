@@ -0,0 +1,7 @@
+package top.frankyang.unityfs4j.exception;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public class FileChangedException extends UnityFsException {
+}
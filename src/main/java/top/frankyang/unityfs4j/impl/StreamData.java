@@ -2,8 +2,10 @@ package top.frankyang.unityfs4j.impl;
 
 
 import top.frankyang.unityfs4j.asset.Asset;
+import top.frankyang.unityfs4j.cache.PooledBuffer;
 import top.frankyang.unityfs4j.engine.UnityField;
 import top.frankyang.unityfs4j.engine.UnityObject;
+import top.frankyang.unityfs4j.exception.DataFormatException;
 import top.frankyang.unityfs4j.util.BufferUtils;
 
 public interface StreamData extends UnityObject {
@@ -20,8 +22,22 @@ public interface StreamData extends UnityObject {
     String getPath();
 
     default byte[] getData() {
-        var payload = getAsset().getPayload();
-        payload.seek(getAsset().getOffset() + getOffset());
-        return BufferUtils.read(payload, (int) getSize());
+        try (var in = getAsset().slice(getOffset(), getSize())) {
+            return BufferUtils.read(in, (int) getSize());
+        }
+    }
+
+    default PooledBuffer getDataBuffer() {  // Off the heap, to be released by the caller
+        var asset = getAsset();
+        var data = asset.getContext().getBufferPool().allocate((int) getSize());
+        try (var in = asset.slice(getOffset(), getSize())) {
+            if (in.read(data.buffer()) != getSize()) {
+                throw new DataFormatException("stream data truncated: " + getPath());
+            }
+            return data;
+        } catch (RuntimeException e) {
+            data.release();
+            throw e;
+        }
     }
 }
@@ -0,0 +1,25 @@
+package top.frankyang.unityfs4j.index;
+
+import top.frankyang.unityfs4j.util.LongIntPair;
+
+import java.util.List;
+import java.util.UUID;
+
+public record AssetEntry(
+    int metadataLength,
+    int contentLength,
+    int formatVersion,
+    int contentOffset,
+    boolean bigEndian,
+    boolean longObjectId,
+    long typesOffset,  // The type trees are only parsed when an object needs them
+    List<ObjectEntry> objects,
+    List<LongIntPair> adds,
+    List<ReferenceEntry> refs
+) {
+    public record ObjectEntry(long pathId, int offset, int length, int typeId, int classId, boolean destroyed) {
+    }
+
+    public record ReferenceEntry(String assetPath, UUID uuid, int type, String filePath) {
+    }
+}
@@ -0,0 +1,50 @@
+package top.frankyang.unityfs4j.index;
+
+import lombok.Getter;
+import top.frankyang.unityfs4j.UnityFsHeader;
+import top.frankyang.unityfs4j.UnityFsMetadata;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Getter
+public class BundleEntry {
+    private final Map<String, AssetEntry> assets = new ConcurrentHashMap<>();  // Filled in as they are loaded
+
+    private final String path;  // Relative to the context root
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final UnityFsHeader header;
+
+    private final long baseOffset;
+
+    private final UnityFsMetadata metadata;
+
+    public BundleEntry(
+        String path, long size, long lastModified, UnityFsHeader header, long baseOffset, UnityFsMetadata metadata
+    ) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.header = header;
+        this.baseOffset = baseOffset;
+        this.metadata = metadata;
+    }
+
+    public Map<String, AssetEntry> getAssets() {
+        return Collections.unmodifiableMap(assets);
+    }
+
+    Map<String, AssetEntry> getAssets0() {
+        return assets;
+    }
+
+    public UUID getUuid() {
+        return metadata.uuid();
+    }
+}
@@ -0,0 +1,249 @@
+package top.frankyang.unityfs4j.index;
+
+import lombok.Getter;
+import top.frankyang.unityfs4j.UnityFsHeader;
+import top.frankyang.unityfs4j.UnityFsMetadata;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataBlock;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
+import top.frankyang.unityfs4j.index.AssetEntry.ObjectEntry;
+import top.frankyang.unityfs4j.index.AssetEntry.ReferenceEntry;
+import top.frankyang.unityfs4j.util.LongIntPair;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/*
+ * What it takes to open a bundle and list its objects, kept in a file across runs: the header and directory
+ * of every bundle, and the object tables of every asset loaded so far. An entry is only used while the size
+ * and modification time of its bundle are unchanged, so a warm start decompresses nothing until object data
+ * is actually read. The file is a cache; when it is unreadable or of another version, it is started anew.
+ */
+public class UnityFsIndex {
+    private static final int MAGIC_WORD = 0x55465349;  // UFSI
+
+    private static final int VERSION = 1;
+
+    private final Map<String, BundleEntry> entries = new ConcurrentHashMap<>();
+
+    @Getter
+    private final Path file;
+
+    private volatile boolean dirty;
+
+    public UnityFsIndex(Path file) {
+        this.file = file.toAbsolutePath();
+        if (Files.isRegularFile(this.file)) {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+                read(in);
+            } catch (IOException | RuntimeException e) {
+                entries.clear();
+            }
+        }
+    }
+
+    public Map<String, BundleEntry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    public BundleEntry lookup(String path, long size, long lastModified) {  // Null if absent or stale
+        // The bundle UUID isn't checked, as it is only found in the compressed metadata this saves reading
+        var entry = entries.get(path);
+        if (entry == null || entry.getSize() != size || entry.getLastModified() != lastModified) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(BundleEntry entry) {
+        entries.put(entry.getPath(), entry);
+        dirty = true;
+    }
+
+    public void put(BundleEntry entry, String assetName, AssetEntry asset) {
+        entry.getAssets0().put(assetName, asset);
+        dirty = true;
+    }
+
+    public void prune(Path root) {  // Drops the bundles no longer found under root, deleted or renamed
+        if (entries.keySet().removeIf(path -> !Files.isRegularFile(root.resolve(path)))) {
+            dirty = true;
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        dirty = false;  // Anything put from now on makes it dirty again
+        var temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out);
+            }
+            Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);  // Readers never see a partial index
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC_WORD || in.readInt() != VERSION) return;
+        var entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            var path = in.readUTF();
+            var size = in.readLong();
+            var lastModified = in.readLong();
+            var header = new UnityFsHeader(
+                in.readInt(), in.readUTF(), in.readUTF(),
+                in.readLong(), in.readInt(), in.readInt(), in.readInt()
+            );
+            var baseOffset = in.readLong();
+            var uuid = readUuid(in);
+
+            var blockCount = in.readInt();
+            var blocks = new ArrayList<DataBlock>(blockCount);
+            for (int j = 0; j < blockCount; j++) {
+                blocks.add(new DataBlock(in.readInt(), in.readInt(), in.readInt()));
+            }
+            var nodeCount = in.readInt();
+            var nodes = new ArrayList<DataNode>(nodeCount);
+            for (int j = 0; j < nodeCount; j++) {
+                nodes.add(new DataNode(in.readLong(), in.readLong(), in.readInt(), in.readUTF()));
+            }
+
+            var entry = new BundleEntry(
+                path, size, lastModified, header, baseOffset, new UnityFsMetadata(uuid, blocks, nodes)
+            );
+            var assetCount = in.readInt();
+            for (int j = 0; j < assetCount; j++) {
+                entry.getAssets0().put(in.readUTF(), readAsset(in));
+            }
+            entries.put(path, entry);
+        }
+    }
+
+    private AssetEntry readAsset(DataInputStream in) throws IOException {
+        var metadataLength = in.readInt();
+        var contentLength = in.readInt();
+        var formatVersion = in.readInt();
+        var contentOffset = in.readInt();
+        var bigEndian = in.readBoolean();
+        var longObjectId = in.readBoolean();
+        var typesOffset = in.readLong();
+
+        var objectCount = in.readInt();
+        var objects = new ArrayList<ObjectEntry>(objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            objects.add(new ObjectEntry(
+                in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean()
+            ));
+        }
+        var addCount = in.readInt();
+        var adds = new ArrayList<LongIntPair>(addCount);
+        for (int i = 0; i < addCount; i++) {
+            adds.add(new LongIntPair(in.readLong(), in.readInt()));
+        }
+        var refCount = in.readInt();
+        var refs = new ArrayList<ReferenceEntry>(refCount);
+        for (int i = 0; i < refCount; i++) {
+            refs.add(new ReferenceEntry(in.readUTF(), readUuid(in), in.readInt(), in.readUTF()));
+        }
+
+        return new AssetEntry(
+            metadataLength, contentLength, formatVersion, contentOffset,
+            bigEndian, longObjectId, typesOffset, objects, adds, refs
+        );
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        var snapshot = List.copyOf(entries.values());
+        out.writeInt(MAGIC_WORD);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.size());
+        for (var entry : snapshot) {
+            out.writeUTF(entry.getPath());
+            out.writeLong(entry.getSize());
+            out.writeLong(entry.getLastModified());
+
+            var header = entry.getHeader();
+            out.writeInt(header.fileVersion());
+            out.writeUTF(header.playerVersion());
+            out.writeUTF(header.engineVersion());
+            out.writeLong(header.length());
+            out.writeInt(header.zippedSize());
+            out.writeInt(header.actualSize());
+            out.writeInt(header.flag());
+            out.writeLong(entry.getBaseOffset());
+
+            var metadata = entry.getMetadata();
+            writeUuid(out, metadata.uuid());
+            out.writeInt(metadata.dataBlocks().size());
+            for (var block : metadata.dataBlocks()) {
+                out.writeInt(block.actualSize());
+                out.writeInt(block.zippedSize());
+                out.writeInt(block.flag());
+            }
+            out.writeInt(metadata.dataNodes().size());
+            for (var node : metadata.dataNodes()) {
+                out.writeLong(node.offset());
+                out.writeLong(node.length());
+                out.writeInt(node.status());
+                out.writeUTF(node.name());
+            }
+
+            var assets = Map.copyOf(entry.getAssets());
+            out.writeInt(assets.size());
+            for (var asset : assets.entrySet()) {
+                out.writeUTF(asset.getKey());
+                writeAsset(out, asset.getValue());
+            }
+        }
+    }
+
+    private void writeAsset(DataOutputStream out, AssetEntry asset) throws IOException {
+        out.writeInt(asset.metadataLength());
+        out.writeInt(asset.contentLength());
+        out.writeInt(asset.formatVersion());
+        out.writeInt(asset.contentOffset());
+        out.writeBoolean(asset.bigEndian());
+        out.writeBoolean(asset.longObjectId());
+        out.writeLong(asset.typesOffset());
+
+        out.writeInt(asset.objects().size());
+        for (var object : asset.objects()) {
+            out.writeLong(object.pathId());
+            out.writeInt(object.offset());
+            out.writeInt(object.length());
+            out.writeInt(object.typeId());
+            out.writeInt(object.classId());
+            out.writeBoolean(object.destroyed());
+        }
+        out.writeInt(asset.adds().size());
+        for (var add : asset.adds()) {
+            out.writeLong(add.first());
+            out.writeInt(add.second());
+        }
+        out.writeInt(asset.refs().size());
+        for (var ref : asset.refs()) {
+            out.writeUTF(ref.assetPath());
+            writeUuid(out, ref.uuid());
+            out.writeInt(ref.type());
+            out.writeUTF(ref.filePath());
+        }
+    }
+
+    private UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+}
@@ -2,16 +2,39 @@ package top.frankyang.unityfs4j.io;
 
 
 
+import top.frankyang.unityfs4j.util.BufferUtils;
+import top.frankyang.unityfs4j.util.StringTable;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
+/*
+ * Primitives are got from the buffer under the pointer in one go whenever they lie wholly within it, and
+ * byte by byte through the stream otherwise, which is only ever the case at the edges of blocks or windows.
+ */
 public abstract class AbstractRandomAccess implements RandomAccess {
     protected final EndianDataInputStream in;
 
+    protected ByteOrder order = ByteOrder.BIG_ENDIAN;  // That of any buffer handed out by buffered()
+
     protected AbstractRandomAccess() {
         in = new EndianDataInputStream(new Input());
     }
 
+    protected ByteBuffer buffered(int length) {  // At the pointer and in order, if it holds as many more bytes
+        return null;
+    }
+
+    protected void advance(int length) {  // By as many bytes as were just got from buffered()
+    }
+
+    private void consume(ByteBuffer buf, int length) {  // Got through a view, which left buf where it was
+        buf.position(buf.position() + length);
+        advance(length);
+    }
+
     @Override
     public RandomAccess align() {
         var ptr = tell();
@@ -51,6 +74,12 @@ public abstract class AbstractRandomAccess implements RandomAccess {
     @Override
     public void setBigEndian(boolean bigEndian) {
         in.setBigEndian(bigEndian);
+        order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+
+    @Override
+    public boolean isBigEndian() {
+        return order == ByteOrder.BIG_ENDIAN;
     }
 
     @Override
@@ -70,52 +99,177 @@ public abstract class AbstractRandomAccess implements RandomAccess {
 
     @Override
     public boolean readBoolean() {
-        return in.readBoolean();
+        var buf = buffered(1);
+        if (buf == null) return in.readBoolean();
+        var ret = buf.get() != 0;
+        advance(1);
+        return ret;
     }
 
     @Override
     public byte readByte() {
-        return in.readByte();
+        var buf = buffered(1);
+        if (buf == null) return in.readByte();
+        var ret = buf.get();
+        advance(1);
+        return ret;
     }
 
     @Override
     public int readUnsignedByte() {
-        return in.readUnsignedByte();
+        var buf = buffered(1);
+        if (buf == null) return in.readUnsignedByte();
+        var ret = buf.get() & 0xff;
+        advance(1);
+        return ret;
     }
 
     @Override
     public short readShort() {
-        return in.readShort();
+        var buf = buffered(2);
+        if (buf == null) return in.readShort();
+        var ret = buf.getShort();
+        advance(2);
+        return ret;
     }
 
     @Override
     public int readUnsignedShort() {
-        return in.readUnsignedShort();
+        var buf = buffered(2);
+        if (buf == null) return in.readUnsignedShort();
+        var ret = buf.getShort() & 0xffff;
+        advance(2);
+        return ret;
     }
 
     @Override
     public char readChar() {
-        return in.readChar();
+        var buf = buffered(2);
+        if (buf == null) return in.readChar();
+        var ret = buf.getChar();
+        advance(2);
+        return ret;
     }
 
     @Override
     public int readInt() {
-        return in.readInt();
+        var buf = buffered(4);
+        if (buf == null) return in.readInt();
+        var ret = buf.getInt();
+        advance(4);
+        return ret;
     }
 
     @Override
     public long readLong() {
-        return in.readLong();
+        var buf = buffered(8);
+        if (buf == null) return in.readLong();
+        var ret = buf.getLong();
+        advance(8);
+        return ret;
     }
 
     @Override
     public float readFloat() {
-        return in.readFloat();
+        var buf = buffered(4);
+        if (buf == null) return in.readFloat();
+        var ret = buf.getFloat();
+        advance(4);
+        return ret;
     }
 
     @Override
     public double readDouble() {
-        return in.readDouble();
+        var buf = buffered(8);
+        if (buf == null) return in.readDouble();
+        var ret = buf.getDouble();
+        advance(8);
+        return ret;
+    }
+
+    @Override
+    public void readShorts(short[] dst, int off, int len) {
+        while (len > 0) {
+            var buf = buffered(Short.BYTES);
+            if (buf == null) {  // Straddles an edge
+                dst[off++] = in.readShort();
+                len--;
+                continue;
+            }
+            var n = Math.min(len, buf.remaining() / Short.BYTES);
+            buf.asShortBuffer().get(dst, off, n);
+            consume(buf, n * Short.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void readInts(int[] dst, int off, int len) {
+        while (len > 0) {
+            var buf = buffered(Integer.BYTES);
+            if (buf == null) {  // Straddles an edge
+                dst[off++] = in.readInt();
+                len--;
+                continue;
+            }
+            var n = Math.min(len, buf.remaining() / Integer.BYTES);
+            buf.asIntBuffer().get(dst, off, n);
+            consume(buf, n * Integer.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void readLongs(long[] dst, int off, int len) {
+        while (len > 0) {
+            var buf = buffered(Long.BYTES);
+            if (buf == null) {  // Straddles an edge
+                dst[off++] = in.readLong();
+                len--;
+                continue;
+            }
+            var n = Math.min(len, buf.remaining() / Long.BYTES);
+            buf.asLongBuffer().get(dst, off, n);
+            consume(buf, n * Long.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void readFloats(float[] dst, int off, int len) {
+        while (len > 0) {
+            var buf = buffered(Float.BYTES);
+            if (buf == null) {  // Straddles an edge
+                dst[off++] = in.readFloat();
+                len--;
+                continue;
+            }
+            var n = Math.min(len, buf.remaining() / Float.BYTES);
+            buf.asFloatBuffer().get(dst, off, n);
+            consume(buf, n * Float.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void readDoubles(double[] dst, int off, int len) {
+        while (len > 0) {
+            var buf = buffered(Double.BYTES);
+            if (buf == null) {  // Straddles an edge
+                dst[off++] = in.readDouble();
+                len--;
+                continue;
+            }
+            var n = Math.min(len, buf.remaining() / Double.BYTES);
+            buf.asDoubleBuffer().get(dst, off, n);
+            consume(buf, n * Double.BYTES);
+            off += n;
+            len -= n;
+        }
     }
 
     @Override
@@ -130,12 +284,32 @@ public abstract class AbstractRandomAccess implements RandomAccess {
 
     @Override
     public long readUnsignedInt() {
-        return in.readUnsignedInt();
+        var buf = buffered(4);
+        if (buf == null) return in.readUnsignedInt();
+        var ret = Integer.toUnsignedLong(buf.getInt());
+        advance(4);
+        return ret;
     }
 
     @Override
     public String readString() {
-        return in.readString();
+        return readString(null);
+    }
+
+    @Override
+    public String readString(StringTable table) {
+        var buf = buffered(1);
+        if (buf != null) {  // Found in one scan, unless it ends beyond the buffer
+            var start = buf.position();
+            for (int i = start, limit = buf.limit(); i < limit; i++) {
+                if (buf.get(i) != 0) continue;
+                var length = i - start;
+                var ret = table != null ? table.get(buf, start, length) : BufferUtils.decode(buf, start, length);
+                consume(buf, length + 1);
+                return ret;
+            }
+        }
+        return in.readString(table);
     }
 
     protected class Input extends InputStream {
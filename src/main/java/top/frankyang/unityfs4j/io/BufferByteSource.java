@@ -0,0 +1,28 @@
+package top.frankyang.unityfs4j.io;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+public class BufferByteSource implements ByteSource {
+    protected final ByteBuffer buffer;
+
+    protected BufferByteSource(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public long size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public ByteBuffer slice(long offset, int length) {
+        Objects.checkFromIndexSize(offset, length, size());
+        return buffer.slice((int) offset, length);
+    }
+
+    @Override
+    public boolean isView(long offset, int length) {
+        return true;
+    }
+}
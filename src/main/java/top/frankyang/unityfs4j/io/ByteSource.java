@@ -0,0 +1,44 @@
+package top.frankyang.unityfs4j.io;
+
+import top.frankyang.unityfs4j.cache.PooledBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/*
+ * Random access to the bytes of a file by 64-bit offset. Files that fit in one mapping are served from it
+ * directly; larger ones are mapped segment by segment. See IoBackend for the other ways to get at a file.
+ */
+public interface ByteSource extends Closeable {
+    static ByteSource of(ByteBuffer buffer) {
+        return new BufferByteSource(buffer);
+    }
+
+    static ByteSource of(FileChannel channel) throws IOException {
+        var size = channel.size();
+        if (size <= Integer.MAX_VALUE) {  // Fast path, one mapping for the whole file
+            return new BufferByteSource(channel.map(READ_ONLY, 0, size));
+        }
+        return new MappedByteSource(channel);
+    }
+
+    long size();
+
+    ByteBuffer slice(long offset, int length);  // Big endian at position 0, a view of the file whenever possible
+
+    default PooledBuffer read(long offset, int length) {  // The same, to be released once done with
+        return PooledBuffer.of(slice(offset, length));
+    }
+
+    default boolean isView(long offset, int length) {  // Whether slice() is a view there, free to take again
+        return false;
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,114 @@
+package top.frankyang.unityfs4j.io;
+
+import top.frankyang.unityfs4j.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+public class ByteSourceRandomAccess extends AbstractRandomAccess {
+    private static final int WINDOW_SIZE = 1 << 20;
+
+    protected final ByteSource source;
+
+    protected ByteBuffer window = ByteBuffer.allocate(0);
+
+    protected long windowOffset;
+
+    protected long ptr;
+
+    protected ByteSourceRandomAccess(ByteSource source) {
+        this.source = source;
+    }
+
+    protected boolean fill() {  // Moves the window over ptr, false at the end
+        if (ptr >= windowOffset && ptr < windowOffset + window.limit()) {
+            window.position((int) (ptr - windowOffset));
+            return true;
+        }
+        if (ptr < 0 || ptr >= source.size()) return false;
+        windowOffset = ptr;
+        window = source.slice(ptr, (int) Math.min(WINDOW_SIZE, source.size() - ptr)).order(order);
+        return true;
+    }
+
+    @Override
+    public void setBigEndian(boolean bigEndian) {
+        super.setBigEndian(bigEndian);
+        window.order(order);
+    }
+
+    @Override
+    protected ByteBuffer buffered(int length) {
+        return fill() && window.remaining() >= length ? window : null;
+    }
+
+    @Override
+    protected void advance(int length) {
+        ptr += length;
+    }
+
+    @Override
+    public void seek(long offset) {
+        ptr = offset;
+    }
+
+    @Override
+    public long tell() {
+        return ptr;
+    }
+
+    @Override
+    public long size() {
+        return source.size();
+    }
+
+    @Override
+    public RandomAccess slice(long offset, long length) {  // Over the same source, which it leaves open
+        Objects.checkFromIndexSize(offset, length, size());
+        var ret = new ByteSourceRandomAccess(new ByteSource() {
+            @Override
+            public long size() {
+                return length;
+            }
+
+            @Override
+            public ByteBuffer slice(long off, int len) {
+                Objects.checkFromIndexSize(off, len, length);
+                return source.slice(offset + off, len);
+            }
+
+            @Override
+            public boolean isView(long off, int len) {
+                return source.isView(offset + off, len);
+            }
+        });
+        ret.setBigEndian(isBigEndian());
+        return ret;
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) return -1;
+        ptr++;
+        return BufferUtils.read(window);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len > 0 && !fill()) return -1;  // Else readFully() would wait on it for ever
+        int allRead = 0;
+        while (len > 0 && fill()) {
+            int read = BufferUtils.read(window, b, off, len);
+            ptr += read;
+            off += read;
+            len -= read;
+            allRead += read;
+        }
+        return allRead;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
@@ -0,0 +1,65 @@
+package top.frankyang.unityfs4j.io;
+
+import lombok.SneakyThrows;
+import top.frankyang.unityfs4j.cache.BufferPool;
+import top.frankyang.unityfs4j.cache.PooledBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/*
+ * Positional reads, with nothing mapped at all. Every slice is a copy, so a read() into a buffer from the
+ * pool is what the payload asks for; slice() is only there for the odd header or checksum.
+ */
+public class ChannelByteSource implements ByteSource {
+    protected final FileChannel channel;
+
+    protected final BufferPool pool;
+
+    protected final long size;
+
+    public ChannelByteSource(FileChannel channel, BufferPool pool) throws IOException {
+        this.channel = channel;
+        this.pool = pool;
+        size = channel.size();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public ByteBuffer slice(long offset, int length) {
+        return readFully(ByteBuffer.allocate(length), offset);
+    }
+
+    @Override
+    public PooledBuffer read(long offset, int length) {
+        if (pool == null) {
+            return ByteSource.super.read(offset, length);
+        }
+        var data = pool.allocate(length);
+        try {
+            readFully(data.buffer(), offset);
+        } catch (Throwable t) {
+            data.release();
+            throw t;
+        }
+        return data;
+    }
+
+    @SneakyThrows
+    protected ByteBuffer readFully(ByteBuffer buffer, long offset) {
+        Objects.checkFromIndexSize(offset, buffer.remaining(), size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("file truncated at " + (offset + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+}
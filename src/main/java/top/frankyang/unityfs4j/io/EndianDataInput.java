@@ -1,6 +1,6 @@
 package top.frankyang.unityfs4j.io;
 
-import lombok.SneakyThrows;
+import top.frankyang.unityfs4j.util.StringTable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
@@ -11,6 +11,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public interface EndianDataInput extends DataInput {
     void setBigEndian(boolean bigEndian);
 
+    boolean isBigEndian();
+
     @Override
     void readFully(byte[] b);
 
@@ -64,17 +66,54 @@ public interface EndianDataInput extends DataInput {
         return readLong(); // TODO real unsigned long
     }
 
-    @SneakyThrows
     default String readString() {
+        return readString(null);
+    }
+
+    default String readString(StringTable table) {  // Interned through the table, if any
         var buf = new ByteArrayOutputStream();
         int b;
         while ((b = readUnsignedByte()) != 0) {
             buf.write(b);
         }
-        return buf.toString(UTF_8);
+        if (table == null) {
+            return buf.toString(UTF_8);
+        }
+        var bytes = buf.toByteArray();
+        return table.get(bytes, 0, bytes.length);
     }
 
     default UUID readUuid() {
         return new UUID(readLong(), readLong());
     }
+
+    default void readShorts(short[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            dst[i] = readShort();
+        }
+    }
+
+    default void readInts(int[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            dst[i] = readInt();
+        }
+    }
+
+    default void readLongs(long[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            dst[i] = readLong();
+        }
+    }
+
+    default void readFloats(float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            dst[i] = readFloat();
+        }
+    }
+
+    default void readDoubles(double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            dst[i] = readDouble();
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package top.frankyang.unityfs4j.io;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 
@@ -13,6 +14,7 @@ import static java.nio.charset.StandardCharsets.*;
 public class EndianDataInputStream extends FilterInputStream implements EndianDataInput {
     private final byte[] readBuffer = new byte[8];
 
+    @Getter
     @Setter
     private boolean bigEndian = true;
 
@@ -0,0 +1,172 @@
+package top.frankyang.unityfs4j.io;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import org.apache.commons.io.IOUtils;
+import top.frankyang.unityfs4j.cache.BufferPool;
+import top.frankyang.unityfs4j.cache.PooledBuffer;
+import top.frankyang.unityfs4j.exception.FileChangedException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Function;
+
+/*
+ * A file that is only open while needed. It is opened on first use, and again on the first use after a
+ * release(), so that its owner can give up the descriptor and the mapping without going away. Slices taken
+ * before a release stay valid, as a mapping lives on for as long as anything refers to it. It is never
+ * reopened once the file has been rewritten or replaced, as every offset taken from it would be stale.
+ */
+public class FileByteSource implements ByteSource {
+    @Getter
+    private final Path path;
+
+    private final IoBackend backend;
+
+    private final BufferPool pool;
+
+    private final Runnable onOpen;  // Told every time the file is opened, outside any lock
+
+    private volatile ByteSource delegate;
+
+    private FileChannel channel;  // Only kept open when the delegate maps lazily
+
+    private volatile long size = -1;  // Kept across releases
+
+    private Identity identity;  // As first opened
+
+    private boolean closed;
+
+    public FileByteSource(Path path, IoBackend backend, BufferPool pool, Runnable onOpen) {
+        this.path = path;
+        this.backend = backend;
+        this.pool = pool;
+        this.onOpen = onOpen;
+    }
+
+    public boolean isOpen() {
+        return delegate != null;
+    }
+
+    @Override
+    public long size() {
+        if (size < 0) {
+            open();
+        }
+        return size;
+    }
+
+    @Override
+    public ByteBuffer slice(long offset, int length) {
+        return withSource(source -> source.slice(offset, length));
+    }
+
+    @Override
+    public PooledBuffer read(long offset, int length) {
+        return withSource(source -> source.read(offset, length));
+    }
+
+    @Override
+    public boolean isView(long offset, int length) {
+        return withSource(source -> source.isView(offset, length));
+    }
+
+    protected <T> T withSource(Function<ByteSource, T> action) {
+        while (true) {
+            var source = delegate;
+            if (source == null) {
+                source = open();
+            }
+            try {
+                return action.apply(source);
+            } catch (Exception e) {
+                if (!(e instanceof ClosedChannelException)) throw e;
+                // An interrupted read closes the channel under every reader, though it is still ours to use
+                if (e instanceof ClosedByInterruptException) throw e;  // Left for the next reader to reopen
+                if (delegate == source) {
+                    reopen(source);
+                }
+                // Released or reopened midway, just try again
+            }
+        }
+    }
+
+    protected ByteSource open() {
+        ByteSource source;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("closed: " + path);
+            }
+            if ((source = delegate) != null) return source;
+            delegate = source = openSource();
+        }
+        onOpen.run();
+        return source;
+    }
+
+    private synchronized void reopen(ByteSource stale) {
+        if (closed || delegate != stale) return;
+        var staleChannel = channel;
+        delegate = openSource();  // Never released as far as the owner knows, so it isn't told
+        stale.close();
+        IOUtils.closeQuietly(staleChannel);
+    }
+
+    @SneakyThrows
+    private ByteSource openSource() {  // Holding the lock
+        ByteSource source;
+        var channel = FileChannel.open(path);
+        try {
+            checkIdentity(channel);
+            source = backend.open(channel, pool);
+        } catch (Throwable t) {
+            IOUtils.closeQuietly(channel);
+            throw t;
+        }
+        if (source instanceof BufferByteSource) {  // In memory, which needs no descriptor from now on
+            channel.close();
+            this.channel = null;
+        } else {
+            this.channel = channel;
+        }
+        return source;
+    }
+
+    private void checkIdentity(FileChannel channel) throws IOException {
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        var current = new Identity(channel.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+        if (identity == null) {
+            identity = current;
+            size = current.size();
+        } else if (!identity.equals(current)) {
+            throw new FileChangedException(path + " changed since first opened");
+        }
+    }
+
+    public synchronized boolean release() {  // Whether it was open
+        var source = delegate;
+        if (source == null) return false;
+        delegate = null;
+        source.close();
+        if (channel != null) {
+            IOUtils.closeQuietly(channel);
+            channel = null;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        release();
+        closed = true;
+    }
+
+    private record Identity(long size, long lastModified, Object fileKey) {  // The key is null where unsupported
+    }
+}
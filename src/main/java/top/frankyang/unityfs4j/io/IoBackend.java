@@ -0,0 +1,38 @@
+package top.frankyang.unityfs4j.io;
+
+import top.frankyang.unityfs4j.cache.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * How the bytes of an open file are got at. Mappings cost address space and set-up but make reads free,
+ * positional reads cost a copy each but never fault, and small files are cheapest read once into the heap.
+ * A source that needs the channel no more once opened is a BufferByteSource.
+ */
+@FunctionalInterface
+public interface IoBackend {
+    IoBackend MAP = (channel, pool) -> ByteSource.of(channel);  // Whole, or segmented above 2 GiB
+
+    IoBackend WINDOWED_MAP = (channel, pool) -> new MappedByteSource(channel);
+
+    IoBackend PREAD = ChannelByteSource::new;
+
+    IoBackend HEAP = (channel, pool) -> {
+        var size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("too large to be read into the heap: " + size);
+        }
+        var buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new EOFException("file truncated at " + buffer.position());
+            }
+        }
+        return ByteSource.of(buffer.flip());
+    };
+
+    ByteSource open(FileChannel channel, BufferPool pool) throws IOException;  // The pool may be null
+}
@@ -0,0 +1,89 @@
+package top.frankyang.unityfs4j.io;
+
+import lombok.SneakyThrows;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/*
+ * Maps a file of any size as fixed segments, each on first use. Every segment also maps some bytes of the
+ * next, so only slices that are large and straddle a boundary have to be copied out with a positional read.
+ */
+public class MappedByteSource implements ByteSource {
+    public static final int SEGMENT_SIZE = 1 << 30;
+
+    public static final int SEGMENT_OVERLAP = 1 << 24;
+
+    protected final FileChannel channel;
+
+    protected final long size;
+
+    protected final int segmentSize;
+
+    protected final int segmentOverlap;
+
+    protected final MappedByteBuffer[] segments;
+
+    public MappedByteSource(FileChannel channel) {
+        this(channel, SEGMENT_SIZE, SEGMENT_OVERLAP);
+    }
+
+    @SneakyThrows
+    public MappedByteSource(FileChannel channel, int segmentSize, int segmentOverlap) {
+        if (segmentSize <= 0 || segmentOverlap < 0 || segmentSize > Integer.MAX_VALUE - segmentOverlap) {
+            throw new IllegalArgumentException("illegal segment size: " + segmentSize + " + " + segmentOverlap);
+        }
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.segmentOverlap = segmentOverlap;
+        size = channel.size();
+        segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    @SneakyThrows
+    public ByteBuffer slice(long offset, int length) {
+        Objects.checkFromIndexSize(offset, length, size);
+        var index = (int) (offset / segmentSize);
+        var segment = getSegment(index);
+        var start = offset - (long) index * segmentSize;
+        if (start + length <= segment.limit()) {
+            return segment.slice((int) start, length);
+        }
+        var copy = ByteBuffer.allocate(length);  // Straddles two segments
+        while (copy.hasRemaining()) {
+            if (channel.read(copy, offset + copy.position()) < 0) {
+                throw new EOFException("file truncated at " + (offset + copy.position()));
+            }
+        }
+        return copy.flip();
+    }
+
+    @Override
+    public boolean isView(long offset, int length) {  // Unless it straddles, without mapping anything to know
+        var index = offset / segmentSize;
+        var start = offset - index * segmentSize;
+        return start + length <= Math.min(size - index * segmentSize, (long) segmentSize + segmentOverlap);
+    }
+
+    @SneakyThrows
+    protected synchronized MappedByteBuffer getSegment(int index) {
+        var segment = segments[index];
+        if (segment == null) {
+            var start = (long) index * segmentSize;
+            var length = Math.min(size - start, (long) segmentSize + segmentOverlap);
+            segments[index] = segment = channel.map(READ_ONLY, start, length);
+        }
+        return segment;
+    }
+}
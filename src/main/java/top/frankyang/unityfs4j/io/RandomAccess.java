@@ -30,8 +30,27 @@ public interface RandomAccess extends EndianDataInput, Closeable {
     }
 
     static RandomAccess of(FileChannel channel) throws IOException {
-        var buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-        return new RandomAccessImpl(buf) {
+        return of(channel, IoBackend.MAP);
+    }
+
+    static RandomAccess of(FileChannel channel, IoBackend backend) throws IOException {
+        ByteSource source;
+        try {
+            source = backend.open(channel, null);
+        } catch (Throwable t) {
+            IOUtils.closeQuietly(channel);
+            throw t;
+        }
+        if (source instanceof BufferByteSource) {  // One buffer, read the fast way
+            return new RandomAccessImpl(source.slice(0, (int) source.size())) {
+                @Override
+                public void close() {
+                    super.close();
+                    IOUtils.closeQuietly(channel);
+                }
+            };
+        }
+        return new ByteSourceRandomAccess(source) {
             @Override
             public void close() {
                 super.close();
@@ -50,6 +69,8 @@ public interface RandomAccess extends EndianDataInput, Closeable {
 
     long size();
 
+    RandomAccess slice(long offset, long length);  // Bounded, with a position of its own, in the same byte order
+
     int read();
 
     int read(byte[] b);
@@ -3,6 +3,7 @@ package top.frankyang.unityfs4j.io;
 import top.frankyang.unityfs4j.util.BufferUtils;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public class RandomAccessImpl extends AbstractRandomAccess implements RandomAccess {
     protected final ByteBuffer buf;
@@ -26,6 +27,25 @@ public class RandomAccessImpl extends AbstractRandomAccess implements RandomAcce
         return buf.limit();
     }
 
+    @Override
+    public void setBigEndian(boolean bigEndian) {
+        super.setBigEndian(bigEndian);
+        buf.order(order);
+    }
+
+    @Override
+    protected ByteBuffer buffered(int length) {
+        return buf.remaining() >= length ? buf : null;
+    }
+
+    @Override
+    public RandomAccess slice(long offset, long length) {
+        Objects.checkFromIndexSize(offset, length, size());
+        var ret = new RandomAccessImpl(buf.slice((int) offset, (int) length));
+        ret.setBigEndian(isBigEndian());
+        return ret;
+    }
+
     @Override
     public int read() {
         return BufferUtils.read(buf);
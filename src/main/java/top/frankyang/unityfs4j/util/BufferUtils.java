@@ -6,21 +6,35 @@ import org.apache.commons.io.IOUtils;
 import top.frankyang.unityfs4j.io.EndianDataInput;
 import top.frankyang.unityfs4j.io.RandomAccess;
 
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 @UtilityClass
 public class BufferUtils {
-    @SneakyThrows
     public String getString(ByteBuffer buffer) {
-        var stream = new ByteArrayOutputStream();
-        byte b;
-        while ((b = buffer.get()) != 0) {
-            stream.write(b);
+        return getString(buffer, null);
+    }
+
+    public String getString(ByteBuffer buffer, StringTable table) {  // Interned through the table, if any
+        var start = buffer.position();
+        for (int i = start, limit = buffer.limit(); i < limit; i++) {
+            if (buffer.get(i) != 0) continue;
+            var ret = table != null ? table.get(buffer, start, i - start) : decode(buffer, start, i - start);
+            buffer.position(i + 1);
+            return ret;
+        }
+        throw new BufferUnderflowException();
+    }
+
+    public String decode(ByteBuffer buffer, int offset, int length) {  // UTF-8, absolute
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
         }
-        return stream.toString(StandardCharsets.UTF_8);
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     public void seekTail(ByteBuffer buffer, int offset) {
@@ -58,50 +72,48 @@ public class BufferUtils {
     }
 
     public boolean[] readBooleans(EndianDataInput buf, int size) {
+        var bytes = new byte[size];
+        buf.readFully(bytes);
         var result = new boolean[size];
         for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readBoolean();
+            result[i] = bytes[i] != 0;
         }
         return result;
     }
 
     public short[] readShorts(EndianDataInput buf, int size) {
         var result = new short[size];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readShort();
-        }
+        buf.readShorts(result, 0, size);
         return result;
     }
 
     public int[] readUnsignedShorts(EndianDataInput buf, int size) {
+        var shorts = readShorts(buf, size);
         var result = new int[size];
         for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readUnsignedShort();
+            result[i] = Short.toUnsignedInt(shorts[i]);
         }
         return result;
     }
 
     public int[] readInts(EndianDataInput buf, int size) {
         var result = new int[size];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readInt();
-        }
+        buf.readInts(result, 0, size);
         return result;
     }
 
     public long[] readUnsignedInts(EndianDataInput buf, int size) {
+        var ints = readInts(buf, size);
         var result = new long[size];
         for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readUnsignedInt();
+            result[i] = Integer.toUnsignedLong(ints[i]);
         }
         return result;
     }
 
     public long[] readLongs(EndianDataInput buf, int size) {
         var result = new long[size];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readLong();
-        }
+        buf.readLongs(result, 0, size);
         return result;
     }
 
@@ -111,17 +123,13 @@ public class BufferUtils {
 
     public float[] readFloats(EndianDataInput buf, int size) {
         var result = new float[size];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readFloat();
-        }
+        buf.readFloats(result, 0, size);
         return result;
     }
 
     public double[] readDoubles(EndianDataInput buf, int size) {
         var result = new double[size];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = buf.readDouble();
-        }
+        buf.readDoubles(result, 0, size);
         return result;
     }
 
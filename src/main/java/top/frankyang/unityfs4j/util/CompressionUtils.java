@@ -10,6 +10,7 @@ import top.frankyang.unityfs4j.exception.DataFormatException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import static org.apache.commons.compress.compressors.CompressorStreamFactory.*;
 
@@ -25,6 +26,48 @@ public class CompressionUtils {
         }
     }
 
+    public byte[] decompress(ByteBuffer in, int size, Compression compression) {
+        var buf = new byte[size];
+        var read = switch (compression) {
+            case NONE -> {
+                var len = Math.min(size, in.remaining());
+                in.get(buf, 0, len);
+                yield len;
+            }
+            case LZMA -> LzmaDecoder.decode(in, buf, 0, size);
+            case LZ4, LZ4HC -> Lz4Decoder.decode(in, buf, 0, size);
+            default -> {
+                buf = decompress(BufferUtils.asInputStream(in), size, compression);
+                yield size;
+            }
+        };
+        if (read != size) {
+            throw new DataFormatException(size + " byte(s) expected, got " + read);
+        }
+        return buf;
+    }
+
+    public void decompress(ByteBuffer in, ByteBuffer out, Compression compression) {  // Fills out to its limit
+        var size = out.remaining();
+        var read = switch (compression) {
+            case NONE -> {
+                var len = Math.min(size, in.remaining());
+                out.put(in.slice(in.position(), len));
+                in.position(in.position() + len);
+                yield len;
+            }
+            case LZMA -> LzmaDecoder.decode(in, out);
+            case LZ4, LZ4HC -> Lz4Decoder.decode(in, out);
+            default -> {
+                out.put(decompress(BufferUtils.asInputStream(in), size, compression));
+                yield size;
+            }
+        };
+        if (read != size) {
+            throw new DataFormatException(size + " byte(s) expected, got " + read);
+        }
+    }
+
     @SneakyThrows
     public InputStream decompress(InputStream in, Compression compression) {
         return switch (compression) {
@@ -0,0 +1,121 @@
+package top.frankyang.unityfs4j.util;
+
+import lombok.experimental.UtilityClass;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Raw LZ4 block decoding, straight from the source buffer into the destination. Nothing is allocated: the
+ * literals are bulk-copied and the matches are copied within the destination, byte by byte only when they
+ * overlap themselves.
+ */
+@UtilityClass
+public class Lz4Decoder {
+    private final int MIN_MATCH = 4;
+
+    public int decode(ByteBuffer src, byte[] dst, int off, int len) {
+        int sp = src.position(), sl = src.limit();
+        int dp = off, dl = off + len;
+        try {
+            while (sp < sl) {
+                int token = src.get(sp++) & 0xff;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        literals += (b = src.get(sp++) & 0xff);
+                    } while (b == 255);
+                }
+                if (literals > dl - dp || literals > sl - sp) {
+                    throw new DataFormatException("LZ4 literals overrun at " + sp);
+                }
+                src.get(sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp >= sl) break;  // The last sequence has no match
+
+                int distance = (src.get(sp) & 0xff) | (src.get(sp + 1) & 0xff) << 8;
+                sp += 2;
+                int length = token & 0x0f;
+                if (length == 15) {
+                    int b;
+                    do {
+                        length += (b = src.get(sp++) & 0xff);
+                    } while (b == 255);
+                }
+                length += MIN_MATCH;
+                int from = dp - distance;
+                if (distance == 0 || from < off || length > dl - dp) {
+                    throw new DataFormatException("LZ4 match out of range at " + sp);
+                }
+                if (distance >= length) {
+                    System.arraycopy(dst, from, dst, dp, length);
+                    dp += length;
+                } else {
+                    for (int end = dp + length; dp < end; ) {
+                        dst[dp++] = dst[from++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new DataFormatException("truncated LZ4 block", e);
+        }
+        src.position(sp);
+        return dp - off;
+    }
+
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int sp = src.position(), sl = src.limit();
+        int off = dst.position(), dp = off, dl = dst.limit();
+        try {
+            while (sp < sl) {
+                int token = src.get(sp++) & 0xff;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        literals += (b = src.get(sp++) & 0xff);
+                    } while (b == 255);
+                }
+                if (literals > dl - dp || literals > sl - sp) {
+                    throw new DataFormatException("LZ4 literals overrun at " + sp);
+                }
+                dst.put(dp, src, sp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp >= sl) break;  // The last sequence has no match
+
+                int distance = (src.get(sp) & 0xff) | (src.get(sp + 1) & 0xff) << 8;
+                sp += 2;
+                int length = token & 0x0f;
+                if (length == 15) {
+                    int b;
+                    do {
+                        length += (b = src.get(sp++) & 0xff);
+                    } while (b == 255);
+                }
+                length += MIN_MATCH;
+                int from = dp - distance;
+                if (distance == 0 || from < off || length > dl - dp) {
+                    throw new DataFormatException("LZ4 match out of range at " + sp);
+                }
+                if (distance >= length) {
+                    dst.put(dp, dst, from, length);
+                    dp += length;
+                } else {
+                    for (int end = dp + length; dp < end; ) {
+                        dst.put(dp++, dst.get(from++));
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new DataFormatException("truncated LZ4 block", e);
+        }
+        src.position(sp);
+        dst.position(dp);
+        return dp - off;
+    }
+}
@@ -0,0 +1,384 @@
+package top.frankyang.unityfs4j.util;
+
+import lombok.experimental.UtilityClass;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * LZMA decoding for Unity blocks: a 5-byte properties header followed by the raw range-coded stream, with
+ * the uncompressed size known up front. A block is always decoded whole, so the destination itself serves
+ * as the dictionary and no window is ever allocated. The probability models live in a per-thread state that
+ * is reset for every block, so decoding thousands of blocks allocates nothing beyond the outputs.
+ */
+@UtilityClass
+public class LzmaDecoder {
+    private final ThreadLocal<State> STATES = ThreadLocal.withInitial(State::new);
+
+    public int decode(ByteBuffer src, byte[] dst, int off, int len) {
+        var state = STATES.get();
+        var window = state.arrayWindow;
+        window.reset(dst, off, len);
+        try {
+            return state.decode(src, window);
+        } finally {
+            window.reset(null, 0, 0);  // Don't keep the output alive
+        }
+    }
+
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        var state = STATES.get();
+        var window = state.bufferWindow;
+        window.reset(dst);
+        try {
+            var len = state.decode(src, window);
+            dst.position(dst.position() + len);
+            return len;
+        } finally {
+            window.reset(null);
+        }
+    }
+
+    private final class State {
+        static final int NUM_STATES = 12;
+
+        static final int POS_STATES_MAX = 1 << 4;
+
+        static final int MATCH_MIN_LEN = 2;
+
+        static final int END_POS_MODEL_INDEX = 14;
+
+        static final int IS_MATCH = 0;
+
+        static final int IS_REP = IS_MATCH + NUM_STATES * POS_STATES_MAX;
+
+        static final int IS_REP_G0 = IS_REP + NUM_STATES;
+
+        static final int IS_REP_G1 = IS_REP_G0 + NUM_STATES;
+
+        static final int IS_REP_G2 = IS_REP_G1 + NUM_STATES;
+
+        static final int IS_REP0_LONG = IS_REP_G2 + NUM_STATES;
+
+        static final int POS_SLOT = IS_REP0_LONG + NUM_STATES * POS_STATES_MAX;
+
+        static final int POS_SPECIAL = POS_SLOT + (4 << 6);
+
+        static final int ALIGN = POS_SPECIAL + 1 + 128 - END_POS_MODEL_INDEX;
+
+        static final int LEN = ALIGN + (1 << 4);
+
+        static final int REP_LEN = LEN + 2 + 2 * POS_STATES_MAX * (1 << 3) + (1 << 8);
+
+        static final int PROBS = REP_LEN + REP_LEN - LEN;
+
+        final int[] probs = new int[PROBS];
+
+        final ArrayWindow arrayWindow = new ArrayWindow();
+
+        final BufferWindow bufferWindow = new BufferWindow();
+
+        int[] literals = new int[0x300 << 3];  // Grows for unusual lc + lp
+
+        ByteBuffer in;
+
+        int inPos;
+
+        int inLimit;
+
+        int range;
+
+        int code;
+
+        int decode(ByteBuffer src, Window out) {
+            if (src.remaining() < 5) {
+                throw new DataFormatException("truncated LZMA block");
+            }
+            int props = src.get(src.position()) & 0xff;  // The dictionary size that follows is of no use here
+            if (props >= 9 * 5 * 5) {
+                throw new DataFormatException("illegal LZMA properties: " + props);
+            }
+            int lc = props % 9, lp = props / 9 % 5, pb = props / 45;
+            int pbMask = (1 << pb) - 1, lpMask = (1 << lp) - 1;
+            var literalCount = 0x300 << (lc + lp);
+            if (literals.length < literalCount) {
+                literals = new int[literalCount];
+            }
+            Arrays.fill(literals, 0, literalCount, 1024);
+            Arrays.fill(probs, 1024);
+
+            try {
+                initRange(src, src.position() + 5);
+                int state = 0, rep0 = 0, rep1 = 0, rep2 = 0, rep3 = 0;
+                int remaining = out.limit - out.pos;
+                while (remaining > 0) {
+                    int total = out.pos - out.start;
+                    int posState = total & pbMask;
+
+                    if (bit(probs, IS_MATCH + (state << 4) + posState) == 0) {
+                        int prevByte = total > 0 ? out.get(1) : 0;
+                        int base = 0x300 * (((total & lpMask) << lc) + (prevByte >>> (8 - lc)));
+                        int symbol = 1;
+                        if (state >= 7) {
+                            int matchByte = out.get(rep0 + 1);
+                            do {
+                                int matchBit = (matchByte >>> 7) & 1;
+                                matchByte <<= 1;
+                                int bit = bit(literals, base + ((1 + matchBit) << 8) + symbol);
+                                symbol = (symbol << 1) | bit;
+                                if (matchBit != bit) break;
+                            } while (symbol < 0x100);
+                        }
+                        while (symbol < 0x100) {
+                            symbol = (symbol << 1) | bit(literals, base + symbol);
+                        }
+                        out.put(symbol - 0x100);
+                        state = state < 4 ? 0 : state < 10 ? state - 3 : state - 6;
+                        remaining--;
+                        continue;
+                    }
+
+                    int len;
+                    if (bit(probs, IS_REP + state) != 0) {
+                        if (total == 0) {
+                            throw new DataFormatException("LZMA repeated match at the beginning");
+                        }
+                        if (bit(probs, IS_REP_G0 + state) == 0) {
+                            if (bit(probs, IS_REP0_LONG + (state << 4) + posState) == 0) {  // Short rep
+                                state = state < 7 ? 9 : 11;
+                                out.put(out.get(rep0 + 1));
+                                remaining--;
+                                continue;
+                            }
+                        } else {
+                            int dist;
+                            if (bit(probs, IS_REP_G1 + state) == 0) {
+                                dist = rep1;
+                            } else {
+                                if (bit(probs, IS_REP_G2 + state) == 0) {
+                                    dist = rep2;
+                                } else {
+                                    dist = rep3;
+                                    rep3 = rep2;
+                                }
+                                rep2 = rep1;
+                            }
+                            rep1 = rep0;
+                            rep0 = dist;
+                        }
+                        len = decodeLen(REP_LEN, posState);
+                        state = state < 7 ? 8 : 11;
+                    } else {
+                        rep3 = rep2;
+                        rep2 = rep1;
+                        rep1 = rep0;
+                        len = decodeLen(LEN, posState);
+                        state = state < 7 ? 7 : 10;
+                        rep0 = decodeDistance(len);
+                        if (rep0 == -1) break;  // End marker
+                        if (Integer.compareUnsigned(rep0, total) >= 0) {
+                            throw new DataFormatException("LZMA match distance out of range: " + rep0);
+                        }
+                    }
+                    len += MATCH_MIN_LEN;
+                    if (len > remaining) {
+                        throw new DataFormatException("LZMA match past the end of the block");
+                    }
+                    out.copy(rep0 + 1, len);
+                    remaining -= len;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new DataFormatException("malformed LZMA block", e);
+            } finally {
+                in = null;
+            }
+            src.position(inPos);
+            return out.pos - out.start;
+        }
+
+        void initRange(ByteBuffer src, int pos) {
+            in = src;
+            inPos = pos;
+            inLimit = src.limit();
+            if (next() != 0) {
+                throw new DataFormatException("illegal LZMA range coder header");
+            }
+            code = 0;
+            for (int i = 0; i < 4; i++) {
+                code = (code << 8) | next();
+            }
+            range = -1;
+            if (code == range) {
+                throw new DataFormatException("illegal LZMA range coder header");
+            }
+        }
+
+        int next() {
+            if (inPos >= inLimit) {
+                throw new DataFormatException("truncated LZMA block");
+            }
+            return in.get(inPos++) & 0xff;
+        }
+
+        int bit(int[] probs, int index) {
+            int prob = probs[index];
+            int bound = (range >>> 11) * prob;
+            int bit;
+            if (Integer.compareUnsigned(code, bound) < 0) {
+                range = bound;
+                probs[index] = prob + ((2048 - prob) >>> 5);
+                bit = 0;
+            } else {
+                range -= bound;
+                code -= bound;
+                probs[index] = prob - (prob >>> 5);
+                bit = 1;
+            }
+            if (Integer.compareUnsigned(range, 1 << 24) < 0) {
+                range <<= 8;
+                code = (code << 8) | next();
+            }
+            return bit;
+        }
+
+        int directBits(int count) {
+            int result = 0;
+            do {
+                range >>>= 1;
+                code -= range;
+                int t = -(code >>> 31);
+                code += range & t;
+                if (code == range) {
+                    throw new DataFormatException("malformed LZMA block");
+                }
+                if (Integer.compareUnsigned(range, 1 << 24) < 0) {
+                    range <<= 8;
+                    code = (code << 8) | next();
+                }
+                result = (result << 1) + (t + 1);
+            } while (--count > 0);
+            return result;
+        }
+
+        int bitTree(int base, int bits) {
+            int m = 1;
+            for (int i = 0; i < bits; i++) {
+                m = (m << 1) + bit(probs, base + m);
+            }
+            return m - (1 << bits);
+        }
+
+        int reverseBitTree(int base, int bits) {
+            int m = 1, symbol = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = bit(probs, base + m);
+                m = (m << 1) + bit;
+                symbol |= bit << i;
+            }
+            return symbol;
+        }
+
+        int decodeLen(int base, int posState) {
+            if (bit(probs, base) == 0) {
+                return bitTree(base + 2 + (posState << 3), 3);
+            }
+            if (bit(probs, base + 1) == 0) {
+                return 8 + bitTree(base + 2 + (POS_STATES_MAX << 3) + (posState << 3), 3);
+            }
+            return 16 + bitTree(base + 2 + (POS_STATES_MAX << 4), 8);
+        }
+
+        int decodeDistance(int len) {
+            int posSlot = bitTree(POS_SLOT + (Math.min(len, 3) << 6), 6);
+            if (posSlot < 4) return posSlot;
+            int directBits = (posSlot >>> 1) - 1;
+            int dist = (2 | (posSlot & 1)) << directBits;
+            if (posSlot < END_POS_MODEL_INDEX) {
+                return dist + reverseBitTree(POS_SPECIAL + dist - posSlot, directBits);
+            }
+            dist += directBits(directBits - 4) << 4;
+            return dist + reverseBitTree(ALIGN, 4);
+        }
+    }
+
+    private abstract class Window {
+        int start;
+
+        int pos;
+
+        int limit;
+
+        abstract int get(int distance);
+
+        abstract void put(int b);
+
+        abstract void copy(int distance, int len);
+    }
+
+    private final class ArrayWindow extends Window {
+        byte[] array;
+
+        void reset(byte[] array, int off, int len) {
+            this.array = array;
+            start = pos = off;
+            limit = off + len;
+        }
+
+        @Override
+        int get(int distance) {
+            return array[pos - distance] & 0xff;
+        }
+
+        @Override
+        void put(int b) {
+            array[pos++] = (byte) b;
+        }
+
+        @Override
+        void copy(int distance, int len) {
+            int from = pos - distance;
+            if (distance >= len) {
+                System.arraycopy(array, from, array, pos, len);
+                pos += len;
+            } else {
+                for (int end = pos + len; pos < end; ) {
+                    array[pos++] = array[from++];
+                }
+            }
+        }
+    }
+
+    private final class BufferWindow extends Window {
+        ByteBuffer buffer;
+
+        void reset(ByteBuffer buffer) {
+            this.buffer = buffer;
+            start = pos = buffer == null ? 0 : buffer.position();
+            limit = buffer == null ? 0 : buffer.limit();
+        }
+
+        @Override
+        int get(int distance) {
+            return buffer.get(pos - distance) & 0xff;
+        }
+
+        @Override
+        void put(int b) {
+            buffer.put(pos++, (byte) b);
+        }
+
+        @Override
+        void copy(int distance, int len) {
+            int from = pos - distance;
+            if (distance >= len) {
+                buffer.put(pos, buffer, from, len);
+                pos += len;
+            } else {
+                for (int end = pos + len; pos < end; ) {
+                    buffer.put(pos++, buffer.get(from++));
+                }
+            }
+        }
+    }
+}
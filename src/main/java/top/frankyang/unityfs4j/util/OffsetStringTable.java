@@ -0,0 +1,58 @@
+package top.frankyang.unityfs4j.util;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * The NUL terminated strings of a buffer, split once and then looked up by the offset of their first byte,
+ * as type trees refer to their names.
+ */
+public class OffsetStringTable {
+    private final byte[] bytes;
+
+    private final int[] offsets;  // Ascending
+
+    private final String[] strings;
+
+    public OffsetStringTable(byte[] bytes, StringTable table) {  // Interned through the table, if any
+        this.bytes = bytes;
+        var count = 0;
+        for (byte b : bytes) {
+            if (b == 0) count++;
+        }
+        if (bytes.length > 0 && bytes[bytes.length - 1] != 0) {  // Not terminated, but a string all the same
+            count++;
+        }
+        offsets = new int[count];
+        strings = new String[count];
+        for (int i = 0, start = 0, n = 0; n < count; i++) {
+            if (i < bytes.length && bytes[i] != 0) continue;
+            offsets[n] = start;
+            strings[n++] = table != null ? table.get(bytes, start, i - start) : new String(bytes, start, i - start, UTF_8);
+            start = i + 1;
+        }
+    }
+
+    public String get(int offset) {  // Null if out of range
+        if (offset < 0 || offset >= bytes.length) return null;
+        var index = Arrays.binarySearch(offsets, offset);
+        if (index >= 0) {
+            return strings[index];
+        }
+        var end = offset;  // Into the middle of one, never written by Unity but cheap enough to allow
+        while (end < bytes.length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, UTF_8);
+    }
+
+    public int size() {
+        return strings.length;
+    }
+
+    @Override
+    public String toString() {  // All of it, terminators included
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package top.frankyang.unityfs4j.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Strings by their UTF-8 bytes, so that one read again is neither decoded nor allocated again. There is a
+ * fixed number of slots, each holding the last string hashed to it, which keeps the table bounded and free
+ * of locks; the few thousand names that come back over and over stay put regardless.
+ */
+public class StringTable {
+    private static final StringTable SHARED = new StringTable(1 << 12);
+
+    private final Entry[] slots;
+
+    public StringTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("illegal capacity: " + capacity);
+        }
+        var size = Integer.highestOneBit(capacity);
+        slots = new Entry[size < capacity ? size << 1 : size];  // Rounded up to a power of two
+    }
+
+    public static StringTable getShared() {
+        return SHARED;
+    }
+
+    public String get(ByteBuffer buffer, int offset, int length) {  // Absolute, the buffer is left as it is
+        var hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        var slot = slotOf(hash);
+        var entry = slots[slot];
+        if (entry != null && entry.hash == hash && entry.matches(buffer, offset, length)) {
+            return entry.value;
+        }
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        var value = new String(bytes, UTF_8);
+        slots[slot] = new Entry(hash, bytes, value);
+        return value;
+    }
+
+    public String get(byte[] bytes, int offset, int length) {
+        var hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        var slot = slotOf(hash);
+        var entry = slots[slot];
+        if (entry != null && entry.hash == hash &&
+            Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, offset, offset + length)) {
+            return entry.value;
+        }
+        var value = new String(bytes, offset, length, UTF_8);
+        slots[slot] = new Entry(hash, Arrays.copyOfRange(bytes, offset, offset + length), value);
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, null);
+    }
+
+    private int slotOf(int hash) {
+        return (hash ^ hash >>> 16) & slots.length - 1;
+    }
+
+    private record Entry(int hash, byte[] bytes, String value) {
+        boolean matches(ByteBuffer buffer, int offset, int length) {
+            if (bytes.length != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != buffer.get(offset + i)) return false;
+            }
+            return true;
+        }
+    }
+}
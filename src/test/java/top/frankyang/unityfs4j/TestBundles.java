@@ -0,0 +1,28 @@
+package top.frankyang.unityfs4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/*
+ * The bundles under /bundles hold one asset of five objects (path IDs 100 to 104), each with a reference and
+ * streamed data, and a resource of 4096 bytes; none.ab is one stored block, lz4.ab and lzma.ab many small ones.
+ */
+final class TestBundles {
+    private TestBundles() {
+    }
+
+    static Path copy(String name, Path dir, String as) throws IOException {
+        try (var in = Objects.requireNonNull(TestBundles.class.getResourceAsStream("/bundles/" + name), name)) {
+            var path = dir.resolve(as);
+            Files.createDirectories(path.getParent());
+            Files.copy(in, path);
+            return path;
+        }
+    }
+
+    static Path copy(String name, Path dir) throws IOException {
+        return copy(name, dir, name);
+    }
+}
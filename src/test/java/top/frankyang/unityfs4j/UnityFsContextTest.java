@@ -0,0 +1,213 @@
+package top.frankyang.unityfs4j;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.frankyang.unityfs4j.asset.Asset;
+
+import top.frankyang.unityfs4j.io.IoBackend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnityFsContextTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void retriesFailedReloads() throws IOException {
+        var path = TestBundles.copy("lz4.ab", dir, "a.ab");
+        var whole = Files.readAllBytes(path);
+        try (var context = new UnityFsContext(dir)) {
+            context.getStream(path);
+
+            Files.write(path, Arrays.copyOf(whole, 100));  // Caught half written
+            assertThrows(Exception.class, context::refresh);
+            assertFalse(context.getPathStreamMap().containsKey(path));
+            assertThrows(Exception.class, context::refresh);  // Still, and still not forgotten
+
+            Files.write(path, whole);
+            assertEquals(new UnityFsContext.Changes(Set.of(), Set.of(path), Set.of()), context.refresh());
+            assertEquals(5, context.getStream(path).iterator().next().getObjects().size());
+            assertEquals(new UnityFsContext.Changes(Set.of(), Set.of(), Set.of()), context.refresh());
+        }
+    }
+
+    @Test
+    void dropsFailedReloadsOnceGone() throws IOException {
+        var path = TestBundles.copy("lz4.ab", dir, "a.ab");
+        try (var context = new UnityFsContext(dir)) {
+            context.getStream(path);
+
+            Files.write(path, new byte[100]);
+            assertThrows(Exception.class, context::refresh);
+            Files.delete(path);
+            assertEquals(new UnityFsContext.Changes(Set.of(), Set.of(), Set.of(path)), context.refresh());
+            assertEquals(new UnityFsContext.Changes(Set.of(), Set.of(), Set.of()), context.refresh());
+        }
+    }
+
+    @Test
+    void boundsFilesInFlight() throws Exception {
+        copies(12);
+        var opening = new AtomicInteger();
+        var maxOpening = new AtomicInteger();
+        IoBackend backend = (channel, pool) -> {
+            maxOpening.accumulateAndGet(opening.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return IoBackend.HEAP.open(channel, pool);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            } finally {
+                opening.decrementAndGet();
+            }
+        };
+        var executor = Executors.newFixedThreadPool(8);
+        var options = DiscoveryOptions.builder().executor(executor).maxInFlight(2).build();
+        try (var context = UnityFsContext.builder().rootPath(dir).ioPolicy(policy(backend)).build()) {
+            assertEquals(1, context.findStreams(path -> true, options).size());  // All the same bundle
+            assertEquals(12, context.getPathStreamMap().size());
+            assertEquals(2, maxOpening.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void finishesSubmittedFilesWhenRejected() throws Exception {
+        copies(6);
+        var pool = Executors.newFixedThreadPool(2);
+        var submitted = new AtomicInteger();
+        var done = new AtomicInteger();
+        var options = DiscoveryOptions.builder()
+            .executor(command -> {
+                if (submitted.incrementAndGet() > 4) throw new RejectedExecutionException("full");
+                pool.execute(command);
+            })
+            .listener((path, n, total) -> done.incrementAndGet())
+            .build();
+        try (var context = new UnityFsContext(dir)) {
+            assertThrows(RejectedExecutionException.class, () -> context.findStreams(path -> true, options));
+            assertEquals(4, done.get());  // Not a moment before the last of them
+            assertEquals(4, context.getPathStreamMap().size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void toleratesFailingListeners() throws Exception {
+        copies(3);
+        var calls = new AtomicInteger();
+        var options = DiscoveryOptions.builder().listener((path, done, total) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("listener");
+        }).build();
+        try (var context = new UnityFsContext(dir)) {
+            assertEquals(1, context.findStreams(path -> true, options).size());
+            assertEquals(3, calls.get());
+            assertEquals(3, context.getPathStreamMap().size());
+        }
+    }
+
+    @Test
+    void loadsOnceForConcurrentCallers() throws Exception {
+        var path = TestBundles.copy("lz4.ab", dir);
+        var loads = new AtomicInteger();
+        var opened = new AtomicInteger();
+        IoBackend backend = (channel, pool) -> {
+            loads.incrementAndGet();
+            return IoBackend.HEAP.open(channel, pool);
+        };
+        var executor = Executors.newFixedThreadPool(16);
+        var start = new CountDownLatch(1);
+        try (var context = new UnityFsContext(dir, null, null, null, policy(backend)) {
+            @Override
+            public void streamOpened(UnityFsStream stream) {
+                opened.incrementAndGet();
+                super.streamOpened(stream);
+            }
+        }) {
+            var futures = new ArrayList<Future<UnityFsStream>>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return context.getStream(path);
+                }));
+            }
+            start.countDown();
+            var stream = futures.get(0).get();
+            for (var future : futures) {
+                assertSame(stream, future.get());
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, opened.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void readsEvictedStreamsAgain() throws Exception {
+        var paths = new Path[]{
+            TestBundles.copy("none.ab", dir), TestBundles.copy("lz4.ab", dir), TestBundles.copy("lzma.ab", dir)
+        };
+        var executor = Executors.newSingleThreadExecutor();
+        var limits = StreamLimits.builder().maxOpenStreams(1).trimExecutor(executor).build();
+        try (var context = UnityFsContext.builder().rootPath(dir).limits(limits).build()) {
+            var first = context.getStream(paths[0]);
+            var expected = objectData(first);
+            for (var path : paths) {
+                objectData(context.getStream(path));
+            }
+            executor.submit(() -> null).get();  // Past the trim
+            assertEquals(1, context.getOpenStreams());
+            assertTrue(first.getPayload().getNodeAssetMap().values().stream()
+                .filter(asset -> !asset.isResource()).noneMatch(Asset::isLoaded));
+
+            assertEquals(expected, objectData(context.getStream(paths[0])));
+            executor.submit(() -> null).get();
+            assertEquals(1, context.getOpenStreams());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Map<Long, String> objectData(UnityFsStream stream) {  // Of each object, by path ID
+        var data = new HashMap<Long, String>();
+        for (var asset : stream) {
+            if (asset.isResource()) continue;
+            for (var object : asset) {
+                try (var in = asset.slice(object.getOffset(), object.getLength())) {
+                    var bytes = new byte[object.getLength()];
+                    in.readFully(bytes);
+                    data.put(object.getPathId(), Arrays.toString(bytes));
+                }
+            }
+        }
+        return data;
+    }
+
+    private void copies(int count) throws IOException {  // Of one bundle, under as many paths
+        for (int i = 0; i < count; i++) {
+            TestBundles.copy("lz4.ab", dir, i + ".ab");
+        }
+    }
+
+    private static IoPolicy policy(IoBackend backend) {
+        return IoPolicy.builder().smallFiles(backend).files(backend).largeFiles(backend).build();
+    }
+}
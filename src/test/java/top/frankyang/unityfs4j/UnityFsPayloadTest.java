@@ -0,0 +1,199 @@
+package top.frankyang.unityfs4j;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.frankyang.unityfs4j.asset.Asset;
+import top.frankyang.unityfs4j.asset.ObjectInfo;
+import top.frankyang.unityfs4j.cache.BlockKey;
+import top.frankyang.unityfs4j.cache.MemoryBlockCache;
+import top.frankyang.unityfs4j.cache.PooledBuffer;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+import top.frankyang.unityfs4j.io.ChannelByteSource;
+import top.frankyang.unityfs4j.io.IoBackend;
+import top.frankyang.unityfs4j.io.MappedByteSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnityFsPayloadTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsStoredBlocksOnceUnderPread() throws IOException {
+        var reads = new AtomicInteger();
+        assertReadsOnce(reads, (channel, pool) -> new ChannelByteSource(channel, pool) {
+            @Override
+            public PooledBuffer read(long offset, int length) {
+                reads.incrementAndGet();
+                return super.read(offset, length);
+            }
+        });
+    }
+
+    @Test
+    void readsStraddlingBlocksOnce() throws IOException {  // The one block of none.ab spans a dozen windows
+        var reads = new AtomicInteger();
+        assertReadsOnce(reads, (channel, pool) -> new MappedByteSource(channel, 512, 64) {
+            @Override
+            public PooledBuffer read(long offset, int length) {
+                reads.incrementAndGet();
+                return super.read(offset, length);
+            }
+        });
+    }
+
+    @Test
+    void readsConcurrently() throws Exception {  // Through a cache of ten blocks, so evicting all the while
+        TestBundles.copy("lz4.ab", dir);
+        var cache = new MemoryBlockCache(1000);
+        try (var context = UnityFsContext.builder().rootPath(dir).blockCache(cache).build()) {
+            var payload = context.getStream(Path.of("lz4.ab")).getPayload();
+            var expected = new byte[(int) payload.size()];
+            try (var in = payload.cursor()) {
+                in.readFully(expected);
+            }
+            var executor = Executors.newFixedThreadPool(8);
+            try {
+                var futures = new ArrayList<Future<?>>();
+                for (int t = 0; t < 8; t++) {
+                    var random = new Random(t);
+                    futures.add(executor.submit((Callable<Void>) () -> {
+                        try (var cursor = payload.cursor()) {
+                            cursor.setBigEndian(random.nextBoolean());
+                            var order = ByteBuffer.wrap(expected)
+                                .order(cursor.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+                            for (int i = 0; i < 500; i++) {
+                                var offset = random.nextInt(expected.length - 300);
+                                var length = random.nextInt(300);
+                                try (var slice = payload.slice(offset, length)) {
+                                    var data = new byte[length];
+                                    slice.readFully(data);
+                                    assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + length), data);
+                                }
+                                cursor.seek(offset);
+                                assertEquals(order.getInt(offset), cursor.readInt());
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (var future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertTrue(cache.getStats().evictions() > 0);
+        }
+    }
+
+    @Test
+    void boundsSlices() throws IOException {
+        TestBundles.copy("lz4.ab", dir);
+        try (var context = new UnityFsContext(dir)) {
+            var payload = context.getStream(Path.of("lz4.ab")).getPayload();
+            var expected = new byte[(int) payload.size()];
+            try (var in = payload.cursor()) {
+                in.readFully(expected);
+            }
+
+            try (var slice = payload.slice(150, 60)) {  // Across a block edge, at 200
+                assertEquals(60, slice.size());
+                var data = new byte[60];
+                slice.readFully(data);
+                assertArrayEquals(Arrays.copyOfRange(expected, 150, 210), data);
+                assertEquals(-1, slice.read());
+                assertEquals(-1, slice.read(new byte[1]));
+                assertThrows(EOFException.class, slice::readByte);
+
+                slice.seek(58);
+                assertThrows(EOFException.class, slice::readInt);
+                slice.seek(10);
+                assertThrows(EOFException.class, () -> slice.readFully(new byte[51]));
+                assertThrows(IllegalArgumentException.class, () -> slice.seek(61));
+
+                try (var inner = slice.slice(40, 20)) {
+                    inner.seek(16);
+                    assertEquals(ByteBuffer.wrap(expected).getInt(206), inner.readInt());
+                    assertThrows(EOFException.class, inner::readByte);
+                }
+                assertThrows(IndexOutOfBoundsException.class, () -> slice.slice(40, 21));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> payload.slice(expected.length - 10, 11));
+        }
+    }
+
+    @Test
+    void rejectsShortBlocks() throws IOException {
+        TestBundles.copy("lz4.ab", dir);
+        var cache = new MemoryBlockCache(1 << 20) {
+            @Override
+            public PooledBuffer get(BlockKey key, Compression compression, Supplier<PooledBuffer> loader) {
+                var data = super.get(key, compression, loader);
+                try {  // One byte short
+                    var copy = ByteBuffer.allocate(data.size() - 1).put(data.buffer().limit(data.size() - 1));
+                    return PooledBuffer.of(copy.flip());
+                } finally {
+                    data.release();
+                }
+            }
+        };
+        try (var context = UnityFsContext.builder().rootPath(dir).blockCache(cache).build()) {
+            var stream = context.getStream(Path.of("lz4.ab"));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertThrows(DataFormatException.class, () -> objectAsset(stream).getObjects());
+                try (var in = stream.getPayload().cursor()) {
+                    assertThrows(DataFormatException.class, () -> in.readFully(new byte[1000]));
+                }
+            });
+        }
+    }
+
+    private void assertReadsOnce(AtomicInteger reads, IoBackend backend) throws IOException {
+        TestBundles.copy("none.ab", dir);
+        var policy = IoPolicy.builder().smallFiles(backend).files(backend).largeFiles(backend).build();
+        try (var context = UnityFsContext.builder().rootPath(dir).ioPolicy(policy).build()) {
+            var asset = objectAsset(context.getStream(Path.of("none.ab")));
+            var expected = readAll(asset);
+            var before = reads.get();
+            assertTrue(before > 0);
+
+            assertArrayEquals(expected, readAll(asset));  // Again, through new cursors
+            assertEquals(before, reads.get());
+        }
+    }
+
+    private static Asset objectAsset(UnityFsStream stream) {
+        for (var asset : stream) {
+            if (!asset.isResource()) return asset;
+        }
+        throw new AssertionError("no object asset in " + stream);
+    }
+
+    private static byte[][] readAll(Asset asset) {
+        return asset.getObjects().values().stream().map(UnityFsPayloadTest::read).toArray(byte[][]::new);
+    }
+
+    private static byte[] read(ObjectInfo object) {
+        try (var in = object.getAsset().slice(object.getOffset(), object.getLength())) {
+            var data = new byte[object.getLength()];
+            in.readFully(data);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package top.frankyang.unityfs4j.asset;
+
+import org.junit.jupiter.api.Test;
+import top.frankyang.unityfs4j.engine.UnityObject;
+import top.frankyang.unityfs4j.exception.ObjectFormatException;
+import top.frankyang.unityfs4j.index.AssetEntry.ObjectEntry;
+import top.frankyang.unityfs4j.io.RandomAccess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadPlanTest {
+    private static final String[] PRIMITIVES = {
+        "bool", "SInt8", "UInt8", "char", "SInt16", "short", "UInt16", "unsigned short", "SInt32", "int",
+        "UInt32", "unsigned int", "SInt64", "long", "UInt64", "unsigned long", "float", "double", ""
+    };
+
+    private static final Map<String, Integer> SIZES = Map.of("char", 1, "UInt16", 2, "float", 4);
+
+    private static final int ALIGNED = 0x4000;
+
+    private final ObjectInfo info = new ObjectInfo(new Asset(null, null, "test", 0), new ObjectEntry(1, 0, 0, 0, 0, false));
+
+    @Test
+    void matchesCompiledOnRandomTrees() throws Exception {
+        for (int seed = 0; seed < 200; seed++) {
+            var random = new Random(seed);
+            var root = node("Root", "Base", -1, 0);
+            for (int i = 0, n = 1 + random.nextInt(5); i < n; i++) {
+                root.children.add(randomNode(random, 0, "f" + i));
+            }
+            var bigEndian = random.nextBoolean();
+            assertMatchesCompiled(root, randomData(random, bigEndian), bigEndian);
+        }
+    }
+
+    @Test
+    void readsRunsWithAlignment() throws Exception {
+        var root = node("Root", "Base", -1, 0);
+        root.children.add(node("SInt8", "a", 1, 0));
+        root.children.add(node("SInt16", "b", 2, 0));  // Right after a, unaligned
+        root.children.add(node("float", "c", 4, 0));
+        root.children.add(node("UInt8", "d", 1, ALIGNED));
+        root.children.add(node("double", "e", 8, 0));
+        var data = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN)
+            .put(0, (byte) 1).putShort(1, (short) -2).putFloat(4, 1.5f).put(8, (byte) 200).putDouble(12, 2.25);
+
+        var in = RandomAccess.of(data.array());
+        in.setBigEndian(false);
+        var object = (UnityObject) ReadPlan.of(root).read(info, in);
+        assertEquals((byte) 1, (Byte) object.getField("a"));
+        assertEquals((short) -2, (Short) object.getField("b"));
+        assertEquals(1.5f, (Float) object.getField("c"));
+        assertEquals(200, (Integer) object.getField("d"));
+        assertEquals(2.25, (Double) object.getField("e"));
+        assertEquals(20, in.tell());
+        assertMatchesCompiled(root, data.array(), false);
+    }
+
+    @Test
+    void skipsExposedNames() throws Exception {
+        var root = node("Root", "Base", -1, 0);
+        var exposed = node("ExposedReference", "ref", -1, 0);
+        exposed.children.add(node("int", "exposedName", 4, 0));
+        exposed.children.add(node("int", "defaultValue", 4, 0));
+        root.children.add(exposed);
+        var data = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 99).putInt(4, 7);
+
+        var in = RandomAccess.of(data.array());
+        in.setBigEndian(false);
+        UnityObject ref = ((UnityObject) ReadPlan.of(root).read(info, in)).getField("ref");
+        assertEquals("", ref.getField("exposedName"));
+        assertEquals(7, (Integer) ref.getField("defaultValue"));
+        assertEquals(8, in.tell());
+        assertMatchesCompiled(root, data.array(), false);
+    }
+
+    @Test
+    void readsArraysInBulk() throws Exception {
+        var root = node("Root", "Base", -1, 0);
+        root.children.add(array("floats", "float"));
+        root.children.add(array("shorts", "UInt16"));
+        var data = ByteBuffer.allocate(28).order(ByteOrder.BIG_ENDIAN)
+            .putInt(2).putFloat(0.5f).putFloat(-1f)
+            .putInt(3).putShort((short) 1).putShort((short) 0xffff).putShort((short) 3);
+
+        var in = RandomAccess.of(data.array());
+        in.setBigEndian(true);
+        var object = (UnityObject) ReadPlan.of(root).read(info, in);
+        assertArrayEquals(new float[]{0.5f, -1f}, object.getField("floats"));
+        assertArrayEquals(new int[]{1, 0xffff, 3}, object.getField("shorts"));
+        assertEquals(22, in.tell());
+        assertMatchesCompiled(root, data.array(), true);
+    }
+
+    @Test
+    void checksSizes() throws Exception {
+        var tooShort = padded(12);  // Claims more than its one field
+        assertThrows(ObjectFormatException.class, () -> ReadPlan.of(tooShort).read(info, RandomAccess.of(new byte[16])));
+
+        var exact = padded(4);
+        assertInstanceOf(UnityObject.class, ReadPlan.of(exact).read(info, RandomAccess.of(new byte[16])));
+
+        assertMatchesCompiled(tooShort, new byte[16], false);
+        assertMatchesCompiled(exact, new byte[16], false);
+    }
+
+    private static UnityType padded(int size) {
+        var root = node("Root", "Base", -1, 0);
+        var padded = node("Padded", "p", size, 0);
+        padded.children.add(node("int", "x", 4, 0));
+        root.children.add(padded);
+        return root;
+    }
+
+    private void assertMatchesCompiled(UnityType root, byte[] data, boolean bigEndian) throws Exception {
+        var compiled = new ObjectReaderCompiler(root).compile();
+        assertFalse(compiled instanceof ReadPlan);
+        assertEquals(run(compiled, data, bigEndian), run(ReadPlan.of(root), data, bigEndian));
+    }
+
+    private String run(ObjectReader reader, byte[] data, boolean bigEndian) {
+        var in = RandomAccess.of(data);
+        in.setBigEndian(bigEndian);
+        try {
+            return dump(reader.read(info, in)) + " @" + in.tell();
+        } catch (Exception e) {  // Messages differ, but not what is thrown
+            return e.getClass().getName();
+        }
+    }
+
+    private static UnityType randomNode(Random random, int depth, String name) {
+        switch (depth > 3 ? random.nextInt(2) : random.nextInt(6)) {
+            case 0 -> {
+                var size = random.nextInt(8) == 0 ? random.nextInt(12) : -1;
+                return node(PRIMITIVES[random.nextInt(PRIMITIVES.length)], name, size, flag(random));
+            }
+            case 1 -> {
+                var string = node("string", name, random.nextInt(6) == 0 ? 1 + random.nextInt(4) : -1, flag(random));
+                string.children.add(arrayNode("char", flag(random)));
+                return string;
+            }
+            case 2, 3 -> {
+                var vector = node(random.nextBoolean() ? "vector" : "Array", name,
+                    random.nextInt(8) == 0 ? random.nextInt(16) : -1, flag(random));
+                var array = node("Array", "Array", -1, flag(random));
+                array.isArray = true;
+                array.children.add(node("int", "size", 4, 0));
+                array.children.add(randomNode(random, depth + 1, "data"));
+                if (random.nextInt(5) == 0) return array;
+                vector.children.add(array);
+                return vector;
+            }
+            default -> {
+                var object = node(random.nextInt(4) == 0 ? "ExposedThing" : "Obj" + depth, name,
+                    random.nextInt(6) == 0 ? random.nextInt(24) : -1, flag(random));
+                for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {  // Never empty, or arrays of them never end
+                    object.children.add(random.nextInt(6) == 0
+                        ? node("int", "exposedName", 4, flag(random))
+                        : randomNode(random, depth + 1, "f" + i));
+                }
+                return object;
+            }
+        }
+    }
+
+    private static byte[] randomData(Random random, boolean bigEndian) {  // Mostly small counts, for arrays to end
+        var data = ByteBuffer.allocate(1024).order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        while (data.hasRemaining()) {  // No byte above 3, so that even a count read out of step stays allocatable
+            if (random.nextInt(10) == 0) {
+                data.put((byte) random.nextInt(2));
+            } else if (data.remaining() >= 4) {
+                data.putInt(random.nextInt(4));
+            } else {
+                data.put((byte) 0);
+            }
+        }
+        return data.array();
+    }
+
+    private static int flag(Random random) {
+        return random.nextInt(4) == 0 ? ALIGNED : 0;
+    }
+
+    private static UnityType array(String name, String element) {
+        var vector = node("vector", name, -1, 0);
+        vector.children.add(arrayNode(element, 0));
+        return vector;
+    }
+
+    private static UnityType arrayNode(String element, int flag) {
+        var array = node("Array", "Array", -1, flag);
+        array.isArray = true;
+        array.children.add(node("int", "size", 4, 0));
+        array.children.add(node(element, "data", SIZES.get(element), 0));
+        return array;
+    }
+
+    private static UnityType node(String type, String name, int size, int flag) {
+        var node = new UnityType(17);
+        node.type = type;
+        node.name = name;
+        node.size = size;
+        node.flag = flag;
+        return node;
+    }
+
+    private static String dump(Object value) {
+        if (value instanceof UnityObject object) {
+            var builder = new StringBuilder(object.getUnityType().getType()).append('(');
+            object.getFields().forEach((key, field) -> builder.append(key).append('=').append(dump(field)).append(", "));
+            return builder.append(')').toString();
+        }
+        if (value instanceof Object[] array) {
+            var builder = new StringBuilder("[");
+            for (var element : array) {
+                builder.append(dump(element)).append(", ");
+            }
+            return builder.append(']').toString();
+        }
+        if (value instanceof boolean[] array) return Arrays.toString(array);
+        if (value instanceof byte[] array) return Arrays.toString(array);
+        if (value instanceof short[] array) return Arrays.toString(array);
+        if (value instanceof int[] array) return Arrays.toString(array);
+        if (value instanceof long[] array) return Arrays.toString(array);
+        if (value instanceof float[] array) return Arrays.toString(array);
+        if (value instanceof double[] array) return Arrays.toString(array);
+        return value + ":" + (value == null ? "" : value.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,79 @@
+package top.frankyang.unityfs4j.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+    @Test
+    void recyclesBySizeClass() {
+        var pool = new BufferPool(1 << 20);
+        var small = pool.allocate(1);
+        var odd = pool.allocate(5000);
+        assertEquals(1, small.size());
+        assertEquals(1, small.buffer().capacity());
+        assertEquals(5000, odd.buffer().remaining());
+
+        small.release();
+        odd.release();
+        assertEquals(4096 + 8192, pool.getIdle());
+
+        pool.allocate(6000).release();  // The 8 KiB slab again
+        assertEquals(4096 + 8192, pool.getIdle());
+        var taken = pool.allocate(8192);
+        assertEquals(4096, pool.getIdle());
+        taken.release();
+
+        pool.clear();
+        assertEquals(0, pool.getIdle());
+    }
+
+    @Test
+    void keepsNoMoreThanItsLimit() {
+        var pool = new BufferPool(8192);
+        var buffers = new PooledBuffer[3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.allocate(4096);
+        }
+        for (var buffer : buffers) {
+            buffer.release();
+        }
+        assertEquals(8192, pool.getIdle());
+
+        pool.allocate((1 << 24) + 1).release();  // Above the largest class
+        assertEquals(8192, pool.getIdle());
+    }
+
+    @Test
+    void recyclesOnLastRelease() {
+        var pool = new BufferPool(1 << 20);
+        var data = pool.allocate(4096);
+        data.buffer().put(0, (byte) 42);
+
+        assertSame(data, data.retain());
+        assertTrue(data.tryRetain());
+        assertEquals(3, data.refCount());
+        data.release();
+        data.release();
+        assertEquals(42, data.buffer().get(0));
+        assertEquals(0, pool.getIdle());
+
+        data.release();
+        assertEquals(4096, pool.getIdle());
+        assertFalse(data.tryRetain());
+        assertThrows(IllegalStateException.class, data::retain);
+        assertThrows(IllegalStateException.class, data::buffer);
+        assertThrows(IllegalStateException.class, data::release);
+    }
+
+    @Test
+    void dropsUnpooledBuffers() {
+        var data = PooledBuffer.of(ByteBuffer.wrap(new byte[]{1, 2, 3}).position(1));
+        assertEquals(2, data.size());
+        assertEquals(2, data.buffer().get(0));
+        data.release();
+        assertEquals(0, data.refCount());
+    }
+}
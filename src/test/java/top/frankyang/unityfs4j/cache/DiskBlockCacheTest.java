@@ -0,0 +1,79 @@
+package top.frankyang.unityfs4j.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.frankyang.unityfs4j.UnityFsContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskBlockCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void servesBlocksStoredByEarlierRuns() throws IOException {
+        var root = Files.createDirectory(dir.resolve("root"));
+        var store = dir.resolve("store");
+        try (var in = getClass().getResourceAsStream("/bundles/lzma.ab")) {
+            Files.copy(in, root.resolve("a.ab"));
+        }
+
+        List<String> expected;
+        var cold = new DiskBlockCache(store, new MemoryBlockCache(1 << 20));
+        try (var context = new UnityFsContext(root, cold)) {
+            expected = objectData(context);
+        }
+        assertEquals(0, cold.getDiskStats().hits());
+        assertTrue(cold.getDiskStats().misses() > 0);
+        var blocks = blocks(store);
+        assertEquals(cold.getDiskStats().misses(), blocks.size());
+        for (var block : blocks) {
+            Files.setLastModifiedTime(block, FileTime.fromMillis(0));
+        }
+
+        var warm = new DiskBlockCache(store, new MemoryBlockCache(1 << 20));
+        try (var context = new UnityFsContext(root, warm)) {
+            assertEquals(expected, objectData(context));
+            assertEquals(0, warm.getDiskStats().misses());
+            assertEquals(blocks.size(), warm.getDiskStats().hits());
+            for (var block : blocks) {  // Not on every hit
+                assertEquals(0, Files.getLastModifiedTime(block).toMillis());
+            }
+        }
+        for (var block : blocks) {  // But once closed
+            assertNotEquals(0, Files.getLastModifiedTime(block).toMillis());
+        }
+
+        assertEquals(0, warm.prune(0));
+        assertTrue(blocks(store).isEmpty());
+    }
+
+    private static List<String> objectData(UnityFsContext context) throws IOException {
+        var data = new ArrayList<String>();
+        for (var asset : context.getStream(Path.of("a.ab"))) {
+            if (asset.isResource()) continue;
+            for (var object : asset) {
+                try (var in = asset.slice(object.getOffset(), object.getLength())) {
+                    var bytes = new byte[object.getLength()];
+                    in.readFully(bytes);
+                    data.add(object.getPathId() + ":" + Arrays.toString(bytes));
+                }
+            }
+        }
+        return data;
+    }
+
+    private static List<Path> blocks(Path store) throws IOException {
+        try (var walk = Files.walk(store)) {
+            return walk.filter(path -> path.toString().endsWith(".blk")).toList();
+        }
+    }
+}
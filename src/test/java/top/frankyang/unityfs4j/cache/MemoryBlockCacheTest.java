@@ -0,0 +1,145 @@
+package top.frankyang.unityfs4j.cache;
+
+import org.junit.jupiter.api.Test;
+import top.frankyang.unityfs4j.Compression;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryBlockCacheTest {
+    private static final int SIZE = 4096;
+
+    private final BufferPool pool = new BufferPool(1 << 20);
+
+    private final MemoryBlockCache cache = new MemoryBlockCache(3 * SIZE);
+
+    private int next;
+
+    @Test
+    void evictsByCost() {
+        var lzma = put(Compression.LZMA);
+        var none = put(Compression.NONE);
+        var lz4 = put(Compression.LZ4);
+
+        var later = put(Compression.NONE);  // Ranked as lz4 then, the clock having moved on
+        assertEvicted(none);
+        put(Compression.NONE);
+        assertEvicted(lz4);  // The older of the two
+        put(Compression.NONE);
+        assertEvicted(later);
+
+        for (int i = 0; i < 10; i++) {  // Cheap ones come and go, the expensive one stays
+            put(Compression.NONE);
+        }
+        assertCached(lzma);
+        for (int i = 0; i < 30; i++) {  // Until it has not been used for long enough
+            put(Compression.NONE);
+        }
+        assertEvicted(lzma);
+        assertEquals(3 * SIZE, cache.getStats().size());
+    }
+
+    @Test
+    void keepsWhatIsUsed() {
+        var first = key();
+        var firstData = put(first, Compression.NONE);
+        var second = put(Compression.NONE);
+        put(Compression.NONE);
+
+        cache.get(first, Compression.NONE, () -> fail("cached")).release();  // Now more recent than second
+        put(Compression.NONE);
+        assertEvicted(second);
+        assertCached(firstData);
+    }
+
+    @Test
+    void loadsOnceForConcurrentGets() throws Exception {
+        var key = key();
+        var loads = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(16);
+        try {
+            var futures = new ArrayList<Future<PooledBuffer>>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(key, Compression.LZMA, () -> {
+                        loads.incrementAndGet();
+                        sleep();
+                        return pool.allocate(SIZE);
+                    });
+                }));
+            }
+            start.countDown();
+            var data = futures.get(0).get();
+            for (var future : futures) {
+                assertSame(data, future.get());
+            }
+            assertEquals(1, loads.get());
+            assertEquals(new BlockCache.Stats(15, 1, 0, SIZE, 3 * SIZE), cache.getStats());
+            assertEquals(17, data.refCount());  // Each caller's and the cache's
+            for (var future : futures) {
+                future.get().release();
+            }
+            assertEquals(1, data.refCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void returnsEvictedBuffersOnLastRelease() {
+        var key = key();
+        var held = cache.get(key, Compression.LZ4, () -> pool.allocate(SIZE));  // And not released yet
+        for (int i = 0; i < 3; i++) {
+            put(Compression.LZ4);
+        }
+        assertEquals(1, held.refCount());
+        assertEquals(0, pool.getIdle());
+        assertEquals(0, held.buffer().get(0));  // Still readable
+
+        held.release();
+        assertEquals(0, held.refCount());
+        assertEquals(SIZE, pool.getIdle());
+        assertThrows(IllegalStateException.class, held::buffer);
+
+        cache.clear();
+        assertEquals(4 * SIZE, pool.getIdle());
+    }
+
+    private PooledBuffer put(Compression compression) {
+        return put(key(), compression);
+    }
+
+    private PooledBuffer put(BlockKey key, Compression compression) {  // Cached, held by the cache only
+        var data = pool.allocate(SIZE);
+        assertSame(data, cache.get(key, compression, () -> data));
+        data.release();
+        return data;
+    }
+
+    private BlockKey key() {
+        return new BlockKey(null, next++);
+    }
+
+    private static void assertCached(PooledBuffer data) {
+        assertEquals(1, data.refCount());
+    }
+
+    private static void assertEvicted(PooledBuffer data) {
+        assertEquals(0, data.refCount());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
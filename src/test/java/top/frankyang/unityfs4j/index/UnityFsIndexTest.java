@@ -0,0 +1,153 @@
+package top.frankyang.unityfs4j.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.frankyang.unityfs4j.UnityFsContext;
+import top.frankyang.unityfs4j.UnityFsHeader;
+import top.frankyang.unityfs4j.UnityFsMetadata;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataBlock;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
+import top.frankyang.unityfs4j.index.AssetEntry.ObjectEntry;
+import top.frankyang.unityfs4j.index.AssetEntry.ReferenceEntry;
+import top.frankyang.unityfs4j.util.LongIntPair;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnityFsIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatItSaves() throws IOException {
+        var file = dir.resolve("index");
+        var index = new UnityFsIndex(file);
+        var entry = entry("a/b.ab");
+        index.put(entry);
+        index.put(entry, "CAB-b", asset());
+        index.save();
+
+        var loaded = new UnityFsIndex(file).lookup("a/b.ab", 1234, 5678);
+        assertNotNull(loaded);
+        assertEquals(entry.getHeader(), loaded.getHeader());
+        assertEquals(entry.getBaseOffset(), loaded.getBaseOffset());
+        assertEquals(entry.getMetadata(), loaded.getMetadata());
+        assertEquals(entry.getAssets(), loaded.getAssets());
+    }
+
+    @Test
+    void rejectsStaleEntries() throws IOException {
+        var file = dir.resolve("index");
+        var index = new UnityFsIndex(file);
+        index.put(entry("b.ab"));
+        index.save();
+
+        var loaded = new UnityFsIndex(file);
+        assertNotNull(loaded.lookup("b.ab", 1234, 5678));
+        assertNull(loaded.lookup("b.ab", 1235, 5678));
+        assertNull(loaded.lookup("b.ab", 1234, 5679));
+        assertNull(loaded.lookup("c.ab", 1234, 5678));
+    }
+
+    @Test
+    void startsAnewOnOtherFormats() throws IOException {
+        var file = dir.resolve("index");
+        var index = new UnityFsIndex(file);
+        index.put(entry("b.ab"));
+        index.save();
+        var saved = Files.readAllBytes(file);
+
+        for (var header : new int[][]{{0x55465348, 1}, {0x55465349, 2}}) {  // Magic, version
+            try (var out = new DataOutputStream(Files.newOutputStream(file))) {
+                out.writeInt(header[0]);
+                out.writeInt(header[1]);
+                out.write(saved, 8, saved.length - 8);
+            }
+            assertTrue(new UnityFsIndex(file).getEntries().isEmpty());
+        }
+        Files.write(file, List.of("truncated"));
+        assertTrue(new UnityFsIndex(file).getEntries().isEmpty());
+    }
+
+    @Test
+    void prunesMissingBundles() throws IOException {
+        var file = dir.resolve("index");
+        var root = Files.createDirectory(dir.resolve("root"));
+        var index = new UnityFsIndex(file);
+        index.put(entry("kept.ab"));
+        index.put(entry("gone.ab"));
+        Files.createFile(root.resolve("kept.ab"));
+
+        index.prune(root);
+        assertEquals(Set.of("kept.ab"), index.getEntries().keySet());
+        index.save();
+        assertEquals(Set.of("kept.ab"), new UnityFsIndex(file).getEntries().keySet());
+    }
+
+    @Test
+    void keepsUpWithItsContext() throws IOException {
+        var file = dir.resolve("index");
+        var root = Files.createDirectory(dir.resolve("root"));
+        var bundle = copy("lz4.ab", root.resolve("a.ab"));
+        var other = copy("lzma.ab", root.resolve("b.ab"));
+        try (var context = new UnityFsContext(root, null, new UnityFsIndex(file))) {
+            context.getStream(bundle).forEach(asset -> asset.getObjects().size());
+            context.getStream(other);
+        }
+        var entry = new UnityFsIndex(file).getEntries().get("a.ab");
+        assertEquals(Files.size(bundle), entry.getSize());
+        assertEquals(Files.getLastModifiedTime(bundle).toMillis(), entry.getLastModified());
+        assertEquals(5, entry.getAssets().values().iterator().next().objects().size());
+
+        Files.setLastModifiedTime(bundle, FileTime.fromMillis(entry.getLastModified() - 60_000));  // Touched
+        Files.move(other, root.resolve("c.ab"));  // Renamed
+        try (var context = new UnityFsContext(root, null, new UnityFsIndex(file))) {
+            context.getStream(bundle);
+            context.getStream(root.resolve("c.ab"));
+            context.refresh();
+        }
+        var index = new UnityFsIndex(file);
+        assertEquals(entry.getLastModified() - 60_000, index.getEntries().get("a.ab").getLastModified());
+        assertEquals(Set.of("a.ab", "c.ab"), index.getEntries().keySet());
+
+        Files.delete(bundle);
+        try (var context = new UnityFsContext(root, null, new UnityFsIndex(file))) {
+            context.refresh();  // Nothing loaded, still pruned
+        }
+        assertEquals(Set.of("c.ab"), new UnityFsIndex(file).getEntries().keySet());
+    }
+
+    private static BundleEntry entry(String path) {
+        var header = new UnityFsHeader(6, "5.x.x", "2019.4.0f1", 1234, 80, 120, 0x43);
+        var metadata = new UnityFsMetadata(
+            new UUID(1, 2),
+            List.of(new DataBlock(1000, 400, 2), new DataBlock(50, 50, 0)),
+            List.of(new DataNode(0, 900, 4, "CAB-b"), new DataNode(900, 150, 0, "CAB-b.resS"))
+        );
+        return new BundleEntry(path, 1234, 5678, header, 200, metadata);
+    }
+
+    private static AssetEntry asset() {
+        return new AssetEntry(
+            300, 600, 17, 304, false, true, 40,
+            List.of(new ObjectEntry(1, 304, 40, 3, 28, false), new ObjectEntry(-7, 344, 12, 1, 114, true)),
+            List.of(new LongIntPair(9, 2)),
+            List.of(new ReferenceEntry("", new UUID(3, 4), 0, "archive:/CAB-c/CAB-c"))
+        );
+    }
+
+    private Path copy(String name, Path path) throws IOException {
+        try (var in = getClass().getResourceAsStream("/bundles/" + name)) {
+            Files.copy(in, path);
+            return path;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package top.frankyang.unityfs4j.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.frankyang.unityfs4j.UnityFsContext;
+import top.frankyang.unityfs4j.UnityFsMetadata;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataBlock;
+import top.frankyang.unityfs4j.UnityFsMetadata.DataNode;
+import top.frankyang.unityfs4j.UnityFsPayload;
+import top.frankyang.unityfs4j.util.StringTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Every read is done twice: the fast way, straight from the buffer under the pointer where it can, and the
+ * slow way, with buffered() disabled so that everything goes through the stream byte by byte. Reads start
+ * right before the edges of blocks and windows, and run over them.
+ */
+class AbstractRandomAccessTest {
+    private static final int WINDOW_SIZE = 1 << 20;  // That of ByteSourceRandomAccess
+
+    @TempDir
+    Path dir;
+
+    private UnityFsContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void readsArraysAlike() {
+        var data = data(4096, 1);
+        assertAlike(
+            new RandomAccessImpl(ByteBuffer.wrap(data)),
+            new RandomAccessImpl(ByteBuffer.wrap(data)) {
+                @Override
+                protected ByteBuffer buffered(int length) {
+                    return null;
+                }
+            },
+            0, data.length - 200
+        );
+    }
+
+    @Test
+    void readsAcrossWindows() {
+        var source = ByteSource.of(ByteBuffer.wrap(data(WINDOW_SIZE + 4096, 2)));
+        assertAlike(
+            new ByteSourceRandomAccess(source),
+            new ByteSourceRandomAccess(source) {
+                @Override
+                protected ByteBuffer buffered(int length) {
+                    return null;
+                }
+            },
+            WINDOW_SIZE - 400, WINDOW_SIZE + 100
+        );
+    }
+
+    @Test
+    void readsAcrossBlocks() throws IOException {
+        var payload = payload(data(4096, 3), new Random(3));
+        assertAlike(
+            payload.cursor(),
+            payload.new Cursor(0, payload.size()) {
+                @Override
+                protected ByteBuffer buffered(int length) {
+                    return null;
+                }
+            },
+            0, payload.size() - 200
+        );
+    }
+
+    @Test
+    void readsStringsAcrossBlocks() throws IOException {
+        var data = new byte[64];
+        var text = "straddling".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(text, 0, data, 5, text.length);  // Over the edge at 8, and then 16
+        var payload = payload(data, null);
+        var table = new StringTable(16);
+        for (var endian : new boolean[]{true, false}) {
+            try (var in = payload.cursor()) {
+                in.setBigEndian(endian);
+                in.seek(5);
+                assertEquals("straddling", in.readString(table));
+                assertEquals(16, in.tell());
+                in.seek(5);
+                assertSame(table.get(text, 0, text.length), in.readString(table));
+                in.seek(7);
+                assertEquals("raddling", in.readString());
+            }
+        }
+    }
+
+    private void assertAlike(RandomAccess fast, RandomAccess slow, long from, long to) {
+        for (int seed = 0; seed < 50; seed++) {
+            var start = from + new Random(seed).nextInt((int) (to - from));
+            var bigEndian = seed % 2 == 0;
+            fast.setBigEndian(bigEndian);
+            slow.setBigEndian(bigEndian);
+            assertEquals(run(slow, seed, start), run(fast, seed, start), "seed " + seed);
+        }
+    }
+
+    private static String run(RandomAccess in, int seed, long start) {  // What each read got, and where it left off
+        var random = new Random(seed);
+        var table = new StringTable(64);
+        var log = new StringBuilder();
+        in.seek(start);
+        try {
+            for (int i = 0; i < 200; i++) {
+                log.append(read(in, random, table)).append(" @").append(in.tell()).append('\n');
+            }
+        } catch (Exception e) {  // Past the end, as a sneaky EOFException
+            log.append(e.getClass().getName());
+        }
+        return log.toString();
+    }
+
+    private static String read(RandomAccess in, Random random, StringTable table) {
+        var n = random.nextInt(12);
+        return switch (random.nextInt(19)) {
+            case 0 -> "b" + in.readBoolean();
+            case 1 -> "B" + in.readByte();
+            case 2 -> "ub" + in.readUnsignedByte();
+            case 3 -> "s" + in.readShort();
+            case 4 -> "us" + in.readUnsignedShort();
+            case 5 -> "c" + (int) in.readChar();
+            case 6 -> "i" + in.readInt();
+            case 7 -> "ui" + in.readUnsignedInt();
+            case 8 -> "l" + in.readLong();
+            case 9 -> "f" + Float.floatToRawIntBits(in.readFloat());
+            case 10 -> "d" + Double.doubleToRawLongBits(in.readDouble());
+            case 11 -> {
+                var dst = new short[n + 2];
+                in.readShorts(dst, 1, n);
+                yield "S" + Arrays.toString(dst);
+            }
+            case 12 -> {
+                var dst = new int[n + 2];
+                in.readInts(dst, 1, n);
+                yield "I" + Arrays.toString(dst);
+            }
+            case 13 -> {
+                var dst = new long[n + 2];
+                in.readLongs(dst, 1, n);
+                yield "L" + Arrays.toString(dst);
+            }
+            case 14 -> {
+                var dst = new float[n + 2];
+                in.readFloats(dst, 1, n);
+                yield "F" + Arrays.toString(dst);
+            }
+            case 15 -> {
+                var dst = new double[n + 2];
+                in.readDoubles(dst, 1, n);
+                yield "D" + Arrays.toString(dst);
+            }
+            case 16 -> "t" + in.readString(table);
+            case 17 -> "T" + in.readString();
+            default -> {
+                var dst = new byte[n];
+                in.readFully(dst);
+                yield "r" + Arrays.toString(dst);
+            }
+        };
+    }
+
+    private UnityFsPayload payload(byte[] data, Random random) throws IOException {  // In blocks of 8, or 1 to 40 bytes
+        var blocks = new ArrayList<DataBlock>();
+        for (int i = 0; i < data.length; ) {
+            var size = Math.min(data.length - i, random == null ? 8 : 1 + random.nextInt(40));
+            blocks.add(new DataBlock(size, size, 0));
+            i += size;
+        }
+        var metadata = new UnityFsMetadata(
+            new UUID(0, 0), blocks, List.of(new DataNode(0, data.length, 0, "CAB-test"))
+        );
+        context = new UnityFsContext(dir);
+        return new UnityFsPayload(ByteSource.of(ByteBuffer.wrap(data)), 0, metadata, context) {
+        };
+    }
+
+    private static byte[] data(int size, int seed) {  // Printable, with a terminator every 16 bytes or so
+        var random = new Random(seed);
+        var data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(16) == 0) continue;
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'a' + random.nextInt(26));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,71 @@
+package top.frankyang.unityfs4j.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomAccessTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void boundsSlicesOfArrays() {
+        var data = data(4096);
+        assertBoundsSlices(RandomAccess.of(data), data);
+    }
+
+    @Test
+    void boundsSlicesOfFiles() throws IOException {
+        var data = data(4096);
+        var file = Files.write(dir.resolve("data"), data);
+        for (var backend : new IoBackend[]{IoBackend.PREAD, IoBackend.WINDOWED_MAP}) {
+            try (var in = RandomAccess.of(FileChannel.open(file), backend)) {
+                assertInstanceOf(ByteSourceRandomAccess.class, in);
+                assertBoundsSlices(in, data);
+            }
+        }
+    }
+
+    private static void assertBoundsSlices(RandomAccess whole, byte[] data) {
+        whole.setBigEndian(false);
+        var slice = whole.slice(1000, 60);
+        assertEquals(60, slice.size());
+        assertFalse(slice.isBigEndian());
+        var read = new byte[60];
+        slice.readFully(read);
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 1060), read);
+        assertEquals(-1, slice.read());
+        assertEquals(-1, slice.read(new byte[1]));
+        assertThrows(EOFException.class, slice::readByte);
+
+        slice.seek(58);
+        assertThrows(EOFException.class, slice::readInt);
+        slice.seek(10);
+        assertThrows(EOFException.class, () -> slice.readFully(new byte[51]));
+
+        var inner = slice.slice(40, 20);
+        inner.seek(16);
+        assertEquals(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt(1056), inner.readInt());
+        assertThrows(EOFException.class, inner::readByte);
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.slice(40, 21));
+        assertThrows(IndexOutOfBoundsException.class, () -> whole.slice(data.length - 10, 11));
+        assertEquals(0, whole.tell());  // Untouched by its slices
+    }
+
+    private static byte[] data(int size) {
+        var data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
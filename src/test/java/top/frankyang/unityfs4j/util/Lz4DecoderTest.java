@@ -0,0 +1,100 @@
+package top.frankyang.unityfs4j.util;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import top.frankyang.unityfs4j.Compression;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Lz4DecoderTest {
+    private static final int[] SIZES = {1, 15, 100, 4096, 70000};  // The last past the 64 KiB window
+
+    @Test
+    void decodesIntoArrays() throws IOException {
+        for (var size : SIZES) {
+            var plain = plain(size);
+            var dst = new byte[size + 8];
+            var src = ByteBuffer.wrap(compress(plain));
+
+            assertEquals(size, Lz4Decoder.decode(src, dst, 4, size));
+            assertArrayEquals(plain, Arrays.copyOfRange(dst, 4, 4 + size));
+            assertFalse(src.hasRemaining());
+        }
+    }
+
+    @Test
+    void decodesIntoBuffers() throws IOException {
+        for (var size : SIZES) {
+            var plain = plain(size);
+            for (var dst : new ByteBuffer[]{ByteBuffer.allocate(size), ByteBuffer.allocateDirect(size)}) {
+                var src = ByteBuffer.wrap(compress(plain));
+
+                assertEquals(size, Lz4Decoder.decode(src, dst));
+                assertEquals(ByteBuffer.wrap(plain), dst.flip());
+                assertFalse(src.hasRemaining());
+            }
+        }
+    }
+
+    @Test
+    void rejectsTruncatedInput() throws IOException {
+        var plain = plain(4096);
+        var compressed = compress(plain);
+        for (int cut = 1; cut <= compressed.length; cut += Math.max(1, cut / 8)) {  // Bytes taken off the end
+            var truncated = ByteBuffer.wrap(compressed, 0, compressed.length - cut);
+            assertThrows(DataFormatException.class,
+                () -> CompressionUtils.decompress(truncated.duplicate(), plain.length, Compression.LZ4));
+            assertThrows(DataFormatException.class,
+                () -> CompressionUtils.decompress(truncated.duplicate(), ByteBuffer.allocate(plain.length), Compression.LZ4));
+        }
+    }
+
+    @Test
+    void rejectsOverlongInput() throws IOException {
+        var plain = plain(4096);
+        var compressed = compress(plain);
+        var extended = Arrays.copyOf(compressed, compressed.length + 3);  // Another sequence of two literals
+        extended[compressed.length] = 0x20;
+
+        assertThrows(DataFormatException.class, () -> Lz4Decoder.decode(ByteBuffer.wrap(extended), new byte[4096], 0, 4096));
+        assertThrows(DataFormatException.class, () -> Lz4Decoder.decode(ByteBuffer.wrap(extended), ByteBuffer.allocate(4096)));
+        assertThrows(DataFormatException.class, () -> Lz4Decoder.decode(ByteBuffer.wrap(compressed), new byte[4095], 0, 4095));
+        assertThrows(DataFormatException.class, () -> Lz4Decoder.decode(ByteBuffer.wrap(compressed), ByteBuffer.allocate(4095)));
+    }
+
+    private static byte[] plain(int size) {  // Text that repeats, with noise that doesn't, for matches of every kind
+        var random = new Random(size);
+        var text = "The quick brown fox jumps over the lazy dog. ".getBytes(StandardCharsets.US_ASCII);
+        var plain = new byte[size];
+        for (int i = 0; i < size; ) {
+            if (random.nextInt(4) == 0) {
+                plain[i++] = (byte) random.nextInt(256);
+            } else if (random.nextInt(8) == 0) {
+                for (int end = Math.min(size, i + random.nextInt(300)); i < end; i++) {  // Overlapping its own match
+                    plain[i] = 'z';
+                }
+            } else {
+                var length = Math.min(size - i, random.nextInt(text.length));
+                System.arraycopy(text, 0, plain, i, length);
+                i += length;
+            }
+        }
+        return plain;
+    }
+
+    private static byte[] compress(byte[] plain) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var lz4 = new BlockLZ4CompressorOutputStream(out)) {
+            lz4.write(plain);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package top.frankyang.unityfs4j.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import top.frankyang.unityfs4j.Compression;
+import top.frankyang.unityfs4j.exception.DataFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * The vectors are plain.bin compressed by xz-java with every combination of properties below, each with and
+ * without an end marker, and kept as Unity writes them: the properties and dictionary size, then the stream.
+ */
+class LzmaDecoderTest {
+    private static final String[] PROPERTIES = {
+        "lc0-lp0-pb0", "lc1-lp1-pb1", "lc0-lp2-pb0", "lc3-lp0-pb2", "lc2-lp2-pb3", "lc4-lp0-pb4"
+    };
+
+    private static final String[] MARKERS = {"", "-eos"};
+
+    @Test
+    void decodesIntoArrays() throws IOException {
+        var plain = resource("plain.bin");
+        for (var name : vectors()) {
+            var src = ByteBuffer.wrap(resource(name));
+            var dst = new byte[plain.length + 8];
+
+            assertEquals(plain.length, LzmaDecoder.decode(src, dst, 4, plain.length), name);
+            assertArrayEquals(plain, Arrays.copyOfRange(dst, 4, 4 + plain.length), name);
+        }
+    }
+
+    @Test
+    void decodesIntoBuffers() throws IOException {
+        var plain = resource("plain.bin");
+        for (var name : vectors()) {
+            for (var dst : new ByteBuffer[]{ByteBuffer.allocate(plain.length), ByteBuffer.allocateDirect(plain.length)}) {
+                var src = ByteBuffer.wrap(resource(name));
+
+                assertEquals(plain.length, LzmaDecoder.decode(src, dst), name);
+                assertEquals(ByteBuffer.wrap(plain), dst.flip(), name);
+            }
+        }
+    }
+
+    @Test
+    void rejectsTruncatedInput() throws IOException {
+        var size = resource("plain.bin").length;
+        for (var name : vectors()) {
+            var vector = resource(name);
+            for (var length : new int[]{0, 4, 5, 9, vector.length / 4, vector.length / 2, vector.length - 16}) {
+                var truncated = ByteBuffer.wrap(vector, 0, length);
+                assertThrows(DataFormatException.class,
+                    () -> CompressionUtils.decompress(truncated.duplicate(), size, Compression.LZMA), name);
+                assertThrows(DataFormatException.class,
+                    () -> CompressionUtils.decompress(truncated.duplicate(), ByteBuffer.allocate(size), Compression.LZMA), name);
+            }
+        }
+    }
+
+    private static String[] vectors() {
+        return Arrays.stream(PROPERTIES)
+            .flatMap(properties -> Arrays.stream(MARKERS).map(marker -> properties + marker + ".lzma"))
+            .toArray(String[]::new);
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        return IOUtils.resourceToByteArray("/lzma/" + name);
+    }
+}